@@ -0,0 +1,148 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Request threads only copy a few references into a preallocated slot; a background thread formats and writes the
+// lines to the "rollout.access" logger. When the writer falls behind, new entries are dropped and counted rather
+// than ever blocking the event loop.
+@Component
+public class AccessLog implements DisposableBean {
+
+    private static final Logger ACCESS = LoggerFactory.getLogger("rollout.access");
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    /*
+     * Bounded multi-producer ring (Vyukov): a producer claims position p by CAS on tail once slot p's sequence reads p,
+     * fills the slot and publishes it by setting the sequence to p + 1. The single writer consumes it and hands the
+     * slot back for position p + capacity.
+     */
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final String[] correlationIds;
+    private final String[] methods;
+    private final String[] paths;
+    private final String[] routes;
+    private final String[] upstreams;
+    private final int[] statuses;
+    private final long[] durations;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final boolean enabled;
+    private final Counter dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AccessLog(@Value("${rollout.access-log.enabled:true}") boolean enabled,
+                     @Value("${rollout.access-log.capacity:16384}") int capacity,
+                     MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.correlationIds = new String[size];
+        this.methods = new String[size];
+        this.paths = new String[size];
+        this.routes = new String[size];
+        this.upstreams = new String[size];
+        this.statuses = new int[size];
+        this.durations = new long[size];
+
+        this.enabled = enabled;
+        this.dropped = meterRegistry.counter("rollout.gateway.access-log.dropped");
+        meterRegistry.gauge("rollout.gateway.access-log.backlog", tail, t -> t.get() - head);
+
+        this.writer = new Thread(this::drain, "access-log-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            this.writer.start();
+        }
+    }
+
+    public void record(String correlationId, String method, String path, String route, String upstream, int status, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence < position) {
+                dropped.increment();
+                return;
+            }
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+        }
+        correlationIds[slot] = correlationId;
+        methods[slot] = method;
+        paths[slot] = path;
+        routes[slot] = route;
+        upstreams[slot] = upstream;
+        statuses[slot] = status;
+        durations[slot] = durationNanos;
+        sequences.set(slot, position + 1);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(2_000);
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (!drainAvailable(line)) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drainAvailable(line);
+    }
+
+    private boolean drainAvailable(StringBuilder line) {
+        boolean any = false;
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                return any;
+            }
+            boolean log = ACCESS.isInfoEnabled();
+            if (log) {
+                line.setLength(0);
+                line.append("id=").append(correlationIds[slot])
+                        .append(" method=").append(methods[slot])
+                        .append(" path=").append(paths[slot])
+                        .append(" route=").append(routes[slot])
+                        .append(" upstream=").append(upstreams[slot])
+                        .append(" status=").append(statuses[slot])
+                        .append(" duration_us=").append(durations[slot] / 1_000);
+            }
+            correlationIds[slot] = null;
+            paths[slot] = null;
+            sequences.set(slot, head + mask + 1);
+            head++;
+            any = true;
+            if (log) {
+                ACCESS.info(line.toString());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Verified tokens by SHA-256 of the raw token, each kept until its own exp, so a session re-sending one ID token
+// pays the parse and signature check once. uncached() is for paths that must see a fresh verification.
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private record Entry(Jwt jwt, long expiresAtMs) {
+    }
+
+    private final ReactiveJwtDecoder delegate;
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, int maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+
+        this.hits = meterRegistry.counter("rollout.security.token.cache", "result", "hit");
+        this.misses = meterRegistry.counter("rollout.security.token.cache", "result", "miss");
+        this.bypasses = meterRegistry.counter("rollout.security.token.cache", "result", "bypass");
+        meterRegistry.gaugeMapSize("rollout.security.token.cache.size", Collections.emptyList(), entries);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAtMs() > now && entry.jwt().getTokenValue().equals(token)) {
+                hits.increment();
+                return Mono.just(entry.jwt());
+            }
+            entries.remove(key, entry);
+        }
+
+        misses.increment();
+        return delegate.decode(token).doOnNext(jwt -> {
+            if (jwt.getExpiresAt() != null) {
+                if (entries.size() >= maxSize) {
+                    evict(System.currentTimeMillis());
+                }
+                entries.put(key, new Entry(jwt, jwt.getExpiresAt().toEpochMilli()));
+            }
+        });
+    }
+
+    public ReactiveJwtDecoder uncached() {
+        return token -> {
+            bypasses.increment();
+            return delegate.decode(token);
+        };
+    }
+
+    // Expired tokens go first; if the cache is still full, an arbitrary tenth makes room for new sessions
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAtMs() <= now);
+        Iterator<String> keys = entries.keySet().iterator();
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
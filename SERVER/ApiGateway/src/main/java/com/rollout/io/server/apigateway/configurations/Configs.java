@@ -1,19 +1,55 @@
 package com.rollout.io.server.apigateway.configurations;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
 
+import java.net.InetSocketAddress;
 import java.security.Principal;
+import java.util.List;
 
 @Configuration
 public class Configs {
 
+    private static final String SDK_KEY_HEADER = "x-sdk-key";
+
     @Bean
+    @Primary
     public KeyResolver userKeyResolver() {
         return exchange -> exchange.getPrincipal()
                 .map(Principal::getName)
                 .defaultIfEmpty("anonymous");
     }
 
+    // SDK requests are anonymous, so they are limited per SDK key; batch requests without the header per client address.
+    // SDK keys carry the address too, for the hybrid limiter to fall back on when it has no room for a new key.
+    @Bean
+    public KeyResolver sdkKeyResolver() {
+        return exchange -> {
+            InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+            String address = remoteAddress == null ? null : "addr:" + remoteAddress.getAddress().getHostAddress();
+            String sdkKey = exchange.getRequest().getHeaders().getFirst(SDK_KEY_HEADER);
+            if (sdkKey != null && !sdkKey.isBlank()) {
+                return Mono.just(address == null ? sdkKey : HybridRateLimiter.withAddress(sdkKey, address));
+            }
+            return Mono.justOrEmpty(address);
+        };
+    }
+
+    // Declared here so it stays the default limiter for routes that don't name one, next to the hybrid SDK limiter
+    @Bean
+    @Primary
+    public RedisRateLimiter redisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+                                             @Qualifier(RedisRateLimiter.REDIS_SCRIPT_NAME) RedisScript<List<Long>> redisScript,
+                                             ConfigurationService configurationService) {
+        return new RedisRateLimiter(redisTemplate, redisScript, configurationService);
+    }
+
 }
@@ -1,18 +1,43 @@
 package com.rollout.io.server.apigateway.configurations;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+// Runs first so the correlation id reaches every later filter and the upstream, and the timing covers the whole chain
 @Component
-public class CorrelationIdFilter implements GlobalFilter {
+public class CorrelationIdFilter implements GlobalFilter, Ordered {
 
     private static final String CORRELATION_ID = "X-Correlation-ID";
+    private static final int MAX_STATUS = 600;
+
+    private final AccessLog accessLog;
+    private final MeterRegistry meterRegistry;
+    // Timers per route, indexed by status code, so the hot path does no tag building or registry lookup
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public CorrelationIdFilter(AccessLog accessLog, MeterRegistry meterRegistry) {
+        this.accessLog = accessLog;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
@@ -27,13 +52,35 @@ public class CorrelationIdFilter implements GlobalFilter {
         exchange.getResponse().getHeaders()
                 .add(CORRELATION_ID, correlationId);
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         return chain.filter(exchange.mutate().request(request).build())
-                .then(Mono.fromRunnable(() -> {
-                    long duration = System.currentTimeMillis() - startTime;
-                    System.out.println("[" + correlationId + "] Request took: " + duration + "ms");
-                }));
+                .doFinally(signal -> {
+                    long duration = System.nanoTime() - startTime;
+                    Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                    Integer status = exchange.getResponse().getRawStatusCode();
+                    int code = status == null || status < 0 || status >= MAX_STATUS ? 0 : status;
+
+                    String routeId = route == null ? "none" : route.getId();
+                    String upstream = route == null || route.getUri().getHost() == null ? "none" : route.getUri().getHost();
+                    timer(routeId, upstream, code).record(duration, TimeUnit.NANOSECONDS);
+                    accessLog.record(correlationId, request.getMethodValue(), request.getPath().value(), routeId, upstream, code, duration);
+                });
+    }
+
+    private Timer timer(String routeId, String upstream, int status) {
+        Timer[] byStatus = timers.computeIfAbsent(routeId, id -> new Timer[MAX_STATUS]);
+        Timer timer = byStatus[status];
+        if (timer == null) {
+            timer = Timer.builder("rollout.gateway.requests")
+                    .tag("route", routeId)
+                    .tag("upstream", upstream)
+                    .tag("status", status == 0 ? "none" : Integer.toString(status))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            byStatus[status] = timer;
+        }
+        return timer;
     }
 
 }
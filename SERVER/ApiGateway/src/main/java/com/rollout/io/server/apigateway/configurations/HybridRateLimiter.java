@@ -0,0 +1,280 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets per route and key held in this node, so a request is admitted with one CAS instead of a Redis round
+// trip. Every sync interval each node adds what it admitted to a shared Redis counter per bucket and charges its local
+// bucket with what the other nodes admitted meanwhile, so the cluster converges on one limit per key. When Redis is
+// unreachable the buckets keep limiting per node. Keys are hashed in Redis key names, since SDK keys are secrets.
+@Slf4j
+@Component
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+
+    // A key resolver may append the client address after this separator, which cannot occur in a header value
+    public static final char ADDRESS_SEPARATOR = '\n';
+
+    private static final String REDIS_PREFIX = "rollout:rate-limit:";
+    // Adds each node share to its bucket counter and returns the new totals, comma-separated in key order
+    private static final RedisScript<String> ADD_SCRIPT = RedisScript.of(
+            "local totals = {} for i, key in ipairs(KEYS) do totals[i] = redis.call('INCRBY', key, ARGV[i + 1]) "
+                    + "redis.call('PEXPIRE', key, ARGV[1]) end return table.concat(totals, ',')",
+            String.class);
+
+    @Getter
+    @Setter
+    public static class Config {
+        private int replenishRate;
+        private int burstCapacity;
+    }
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Config defaultConfig = new Config();
+    private final long syncIntervalMs;
+    private final int syncBatchSize;
+    private final int maxBuckets;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Counter syncFailures;
+    private final Disposable sync;
+
+    public HybridRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+                             ConfigurationService configurationService,
+                             MeterRegistry meterRegistry,
+                             @Value("${rollout.rate-limit.replenish-rate:50}") int replenishRate,
+                             @Value("${rollout.rate-limit.burst-capacity:100}") int burstCapacity,
+                             @Value("${rollout.rate-limit.sync-ms:500}") long syncIntervalMs,
+                             @Value("${rollout.rate-limit.sync-batch-size:500}") int syncBatchSize,
+                             @Value("${rollout.rate-limit.max-keys:100000}") int maxBuckets) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.redisTemplate = redisTemplate;
+        this.defaultConfig.setReplenishRate(replenishRate);
+        this.defaultConfig.setBurstCapacity(burstCapacity);
+        this.syncIntervalMs = syncIntervalMs;
+        this.syncBatchSize = syncBatchSize;
+        this.maxBuckets = maxBuckets;
+        this.meterRegistry = meterRegistry;
+
+        this.syncFailures = meterRegistry.counter("rollout.gateway.rate-limit.sync", "result", "failure");
+        meterRegistry.gaugeMapSize("rollout.gateway.rate-limit.keys", List.of(), buckets);
+
+        this.sync = Flux.interval(Duration.ofMillis(syncIntervalMs), Schedulers.single())
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile(), 1)
+                .subscribe();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        long now = System.nanoTime();
+
+        Bucket bucket = bucket(routeId, id, config, now);
+        long remaining = bucket == null ? -1 : bucket.tryAcquire(now);
+        counters(routeId)[remaining >= 0 ? 0 : 1].increment();
+
+        return Mono.just(new Response(remaining >= 0, Map.of(
+                "X-RateLimit-Remaining", Long.toString(Math.max(remaining, 0)),
+                "X-RateLimit-Replenish-Rate", Integer.toString(config.getReplenishRate()),
+                "X-RateLimit-Burst-Capacity", Integer.toString(config.getBurstCapacity()))));
+    }
+
+    @Override
+    public void destroy() {
+        sync.dispose();
+    }
+
+    public static String withAddress(String key, String address) {
+        return key + ADDRESS_SEPARATOR + address;
+    }
+
+    // Null when the request gets no bucket and is denied
+    private Bucket bucket(String routeId, String id, Config config, long now) {
+        int separator = id.lastIndexOf(ADDRESS_SEPARATOR);
+        String key = separator < 0 ? id : id.substring(0, separator);
+        Bucket bucket = buckets.get(routeId + ":" + key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            evictIdle(now);
+            // Still full of active keys, most likely made-up ones: a newcomer is limited by its client address, so keys
+            // sprayed from a few addresses don't throttle new keys from others. Address buckets get a tenth on top of
+            // the limit; past that, or without an address, new keys are denied until buckets go idle.
+            if (buckets.size() >= maxBuckets) {
+                if (separator < 0 || buckets.size() >= maxBuckets + maxBuckets / 10) {
+                    return null;
+                }
+                key = id.substring(separator + 1);
+            }
+        }
+        String redisKey = REDIS_PREFIX + routeId + ":" + hash(key);
+        return buckets.computeIfAbsent(routeId + ":" + key, k -> new Bucket(config, now, redisKey));
+    }
+
+    private Mono<Void> reconcile() {
+        long now = System.nanoTime();
+        List<Share> due = new ArrayList<>();
+        for (Bucket bucket : buckets.values()) {
+            long admitted = bucket.pending.getAndSet(0);
+            if (admitted > 0 || !bucket.idle(now)) {
+                due.add(new Share(bucket, admitted));
+            }
+        }
+        // One script call per batch of buckets; batches are independent, so one failing leaves the others applied
+        return Flux.fromIterable(due)
+                .buffer(syncBatchSize)
+                .concatMap(this::reconcile)
+                .then(Mono.fromRunnable(() -> evictIdle(System.nanoTime())));
+    }
+
+    private Mono<Void> reconcile(List<Share> batch) {
+        // The shared counter outlives a few sync intervals of silence, then resets
+        List<String> keys = new ArrayList<>(batch.size());
+        List<String> args = new ArrayList<>(batch.size() + 1);
+        args.add(Long.toString(Math.max(syncIntervalMs * 10, 10_000)));
+        for (Share share : batch) {
+            keys.add(share.bucket().redisKey);
+            args.add(Long.toString(share.admitted()));
+        }
+
+        // Until the totals are applied the shares belong to the buckets again, whether the call fails or is cancelled
+        AtomicBoolean applied = new AtomicBoolean();
+        return redisTemplate.execute(ADD_SCRIPT, keys, args)
+                .next()
+                .doOnNext(reply -> {
+                    long[] totals = Arrays.stream(reply.split(",")).mapToLong(Long::parseLong).toArray();
+                    if (totals.length != batch.size()) {
+                        throw new IllegalStateException("Expected " + batch.size() + " totals, got " + totals.length);
+                    }
+                    applied.set(true);
+                    long observedAt = System.nanoTime();
+                    for (int i = 0; i < totals.length; i++) {
+                        batch.get(i).bucket().observe(totals[i], batch.get(i).admitted(), observedAt);
+                    }
+                })
+                .doFinally(signal -> {
+                    if (!applied.get()) {
+                        batch.forEach(share -> share.bucket().pending.addAndGet(share.admitted()));
+                    }
+                })
+                .then()
+                .onErrorResume(e -> {
+                    syncFailures.increment();
+                    log.debug("Rate limit sync of {} keys failed, limiting per node until Redis is back: {}", batch.size(), e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket bucket = it.next();
+            if (bucket.idle(now) && bucket.pending.get() == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Counter[] counters(String routeId) {
+        return counters.computeIfAbsent(routeId, route -> new Counter[]{
+                meterRegistry.counter("rollout.gateway.rate-limit", "route", route, "result", "allowed"),
+                meterRegistry.counter("rollout.gateway.rate-limit", "route", route, "result", "denied")
+        });
+    }
+
+    private record Share(Bucket bucket, long admitted) {
+    }
+
+    /*
+     * GCRA token bucket in one long: tat is the time at which the bucket will be full again. Admitting a request moves
+     * it one emission interval further; a request is denied when that would put it more than the burst beyond now.
+     */
+    static final class Bucket {
+
+        private final long interval;
+        private final long capacity;
+        private final String redisKey;
+        private final AtomicLong tat;
+        private final AtomicLong pending = new AtomicLong();
+        private long lastTotal = -1;
+
+        Bucket(Config config, long now, String redisKey) {
+            this.interval = config.getReplenishRate() > 0 ? 1_000_000_000L / config.getReplenishRate() : Long.MAX_VALUE / 4;
+            this.capacity = config.getReplenishRate() > 0 ? interval * Math.max(config.getBurstCapacity(), 1) : 0;
+            this.tat = new AtomicLong(now);
+            this.redisKey = redisKey;
+        }
+
+        // Tokens left after this request, or -1 when it is denied
+        long tryAcquire(long now) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + interval;
+                if (next - now > capacity) {
+                    return -1;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    pending.incrementAndGet();
+                    return (capacity - (next - now)) / interval;
+                }
+            }
+        }
+
+        // Called from the sync loop only, with the cluster-wide total after adding this node's share
+        void observe(long total, long admitted, long now) {
+            long others = lastTotal < 0 || total - admitted < lastTotal ? 0 : total - admitted - lastTotal;
+            lastTotal = total;
+            if (others > 0) {
+                long charge = others > capacity / interval ? capacity : others * interval;
+                tat.updateAndGet(current -> Math.min(Math.max(current, now) + charge, now + capacity));
+            }
+        }
+
+        boolean idle(long now) {
+            return tat.get() <= now;
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.apigateway.helpers.IdentityHeader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The JWT is verified once here. Services receive a short-lived HMAC-signed identity in its place and check
+// that instead of repeating the RSA verification.
+@Component
+public class IdentityPropagationFilter implements GlobalFilter, Ordered {
+
+    private static final List<String> FORWARDED_CLAIMS = List.of("sub", "email", "name", "picture", "email_verified", "iss", "aud", "iat", "exp");
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final byte[] secret;
+    private final long ttlSeconds;
+
+    public IdentityPropagationFilter(ObjectMapper objectMapper,
+                                     @Value("${rollout.identity.propagate:false}") boolean propagate,
+                                     @Value("${rollout.identity.secret:}") String secret,
+                                     @Value("${rollout.identity.ttl-seconds:30}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.enabled = propagate && !secret.isBlank();
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        // Whatever a client sends in the identity header is dropped, whether or not propagation is on
+        ServerHttpRequest.Builder request = exchange.getRequest().mutate().headers(headers -> headers.remove(IdentityHeader.NAME));
+        if (!enabled) {
+            return chain.filter(exchange.mutate().request(request.build()).build());
+        }
+
+        return exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(principal -> request.headers(headers -> {
+                    headers.set(IdentityHeader.NAME, IdentityHeader.sign(claims(((JwtAuthenticationToken) principal).getToken()), secret, objectMapper));
+                    headers.remove(HttpHeaders.AUTHORIZATION); // otherwise the service would verify the token again
+                }))
+                .defaultIfEmpty(request)
+                .flatMap(builder -> chain.filter(exchange.mutate().request(builder.build()).build()));
+    }
+
+    private Map<String, Object> claims(Jwt jwt) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        for (String name : FORWARDED_CLAIMS) {
+            Object value = jwt.getClaims().get(name);
+            if (value != null) {
+                claims.put(name, value instanceof Instant instant ? instant.getEpochSecond() : value);
+            }
+        }
+        long expires = Instant.now().getEpochSecond() + ttlSeconds;
+        if (jwt.getExpiresAt() != null) {
+            expires = Math.min(expires, jwt.getExpiresAt().getEpochSecond());
+        }
+        claims.put(IdentityHeader.EXPIRES, expires);
+        return claims;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0; // ahead of the routing filters, which send the request on
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Feeds PeakEwmaLoadBalancer: the gateway reports every lb:// request's start and completion here, and each
+// instance keeps its in-flight count and a peak-sensitive moving average of its response time
+@Component
+public class InstanceLoadTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    private static final int PRUNE_THRESHOLD = 1024;
+
+    private final long decayNanos;
+    private final Map<String, Load> loads = new ConcurrentHashMap<>();
+
+    public InstanceLoadTracker(@Value("${rollout.load-balancer.decay-ms:10000}") long decayMs) {
+        this.decayNanos = decayMs * 1_000_000L;
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext && ((TimedRequestContext) request.getContext()).getRequestStartTime() == 0) {
+            ((TimedRequestContext) request.getContext()).setRequestStartTime(System.nanoTime());
+        }
+        load(lbResponse.getServer()).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        Load load = load(lbResponse.getServer());
+        load.inFlight.decrementAndGet();
+
+        Object context = completionContext.getLoadBalancerRequest().getContext();
+        if (context instanceof TimedRequestContext && ((TimedRequestContext) context).getRequestStartTime() != 0) {
+            long now = System.nanoTime();
+            load.observe(now - ((TimedRequestContext) context).getRequestStartTime(), now);
+        }
+    }
+
+    Load load(ServiceInstance instance) {
+        String key = instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort();
+        Load load = loads.get(key);
+        if (load == null) {
+            if (loads.size() >= PRUNE_THRESHOLD) {
+                long now = System.nanoTime();
+                loads.values().removeIf(existing -> existing.inFlight.get() == 0 && now - existing.stamp > 10 * decayNanos);
+            }
+            load = loads.computeIfAbsent(key, k -> new Load(decayNanos));
+        }
+        return load;
+    }
+
+    /*
+     * Peak EWMA: a response slower than the average replaces it at once, faster ones pull it down with a weight that
+     * decays over decayNanos. Reads decay the average towards zero for the time since the last response, so an
+     * instance that stopped getting traffic after a slow spell is eventually probed again.
+     */
+    static final class Load {
+
+        // Instances without a measurement get one request at a time until their first response
+        private static final double UNMEASURED_PENALTY = 1e15;
+
+        private final long decayNanos;
+        final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double ewma;
+        private volatile long stamp;
+
+        Load(long decayNanos) {
+            this.decayNanos = decayNanos;
+            this.stamp = System.nanoTime();
+        }
+
+        synchronized void observe(long rttNanos, long now) {
+            double weight = Math.exp(-Math.max(now - stamp, 0) / (double) decayNanos);
+            ewma = rttNanos > ewma ? rttNanos : ewma * weight + rttNanos * (1 - weight);
+            stamp = now;
+        }
+
+        double score(long now) {
+            double average = ewma;
+            int pending = inFlight.get();
+            if (average == 0) {
+                return pending == 0 ? 0 : UNMEASURED_PENALTY + pending;
+            }
+            double decayed = average * Math.exp(-Math.max(now - stamp, 0) / (double) decayNanos);
+            return decayed * (pending + 1);
+        }
+
+    }
+
+}
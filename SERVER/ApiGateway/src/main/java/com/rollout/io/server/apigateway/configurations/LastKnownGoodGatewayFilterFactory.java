@@ -0,0 +1,69 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Keeps each successful SDK response in the LastKnownGoodStore on its way to the client, and marks the exchange
+// with its store key so the circuit breaker fallback can find it
+@Component
+public class LastKnownGoodGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    private final LastKnownGoodStore store;
+
+    public LastKnownGoodGatewayFilterFactory(LastKnownGoodStore store) {
+        super(Object.class);
+        this.store = store;
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return (exchange, chain) -> {
+            String key = exchange.getRequest().getMethod() == HttpMethod.GET ? LastKnownGoodStore.key(exchange.getRequest()) : null;
+            if (key == null) {
+                return chain.filter(exchange);
+            }
+            exchange.getAttributes().put(LastKnownGoodStore.KEY_ATTRIBUTE, key);
+            return chain.filter(exchange.mutate().response(new RecordingResponse(exchange.getResponse(), key)).build());
+        };
+    }
+
+    private final class RecordingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        RecordingResponse(ServerHttpResponse delegate, String key) {
+            super(delegate);
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // Fallback responses carry the stale marker and are never recorded over the real snapshot
+            if (getStatusCode() != HttpStatus.OK || getHeaders().containsKey(LastKnownGoodStore.STALE_HEADER)) {
+                return super.writeWith(body);
+            }
+            return super.writeWith(DataBufferUtils.join(Flux.from(body)).doOnNext(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.asByteBuffer().get(bytes);
+                store.put(key, getHeaders(), bytes);
+            }));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).concatMap(Flux::from));
+        }
+
+    }
+
+}
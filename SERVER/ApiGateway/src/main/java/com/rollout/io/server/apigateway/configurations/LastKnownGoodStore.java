@@ -0,0 +1,124 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The last successful SDK response per sdkKey and request variant, so the circuit breaker fallback can keep clients
+// on their last config instead of failing them while ControlPlaneService is down. Bounded by entries and bytes;
+// the least recently refreshed snapshots go first.
+@Component
+public class LastKnownGoodStore {
+
+    public static final String KEY_ATTRIBUTE = LastKnownGoodStore.class.getName() + ".key";
+    public static final String STALE_HEADER = "X-Rollout-Stale";
+
+    private static final String SDK_KEY_HEADER = "x-sdk-key";
+    private static final List<String> KEPT_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY);
+
+    public record Snapshot(HttpHeaders headers, byte[] body, long storedAtMs) {
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxStaleMs;
+    private final Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+    private long bytes;
+
+    private final Counter served;
+    private final Counter missing;
+
+    public LastKnownGoodStore(@Value("${rollout.sdk.last-known-good.max-entries:10000}") int maxEntries,
+                              @Value("${rollout.sdk.last-known-good.max-bytes:268435456}") long maxBytes,
+                              @Value("${rollout.sdk.last-known-good.max-stale-hours:24}") long maxStaleHours,
+                              MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxStaleMs = maxStaleHours * 3_600_000L;
+
+        this.served = meterRegistry.counter("rollout.sdk.last-known-good.fallback", "result", "served");
+        this.missing = meterRegistry.counter("rollout.sdk.last-known-good.fallback", "result", "missing");
+
+        meterRegistry.gauge("rollout.sdk.last-known-good.entries", this, store -> store.size());
+        meterRegistry.gauge("rollout.sdk.last-known-good.bytes", this, store -> store.bytes());
+    }
+
+    // Null for requests that don't identify an SDK environment
+    public static String key(ServerHttpRequest request) {
+        String sdkKey = request.getHeaders().getFirst(SDK_KEY_HEADER);
+        if (sdkKey == null || sdkKey.isBlank()) {
+            return null;
+        }
+        String query = request.getURI().getRawQuery();
+        String encoding = request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+        return sdkKey + '\n' + (query == null ? "" : query) + '\n' + (encoding == null ? "" : encoding);
+    }
+
+    public void put(String key, HttpHeaders responseHeaders, byte[] body) {
+        if (body.length > maxBytes) {
+            return;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : KEPT_HEADERS) {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                headers.put(name, List.copyOf(values));
+            }
+        }
+        Snapshot snapshot = new Snapshot(HttpHeaders.readOnlyHttpHeaders(headers), body, System.currentTimeMillis());
+
+        synchronized (snapshots) {
+            // Re-inserting moves the key to the end, so iteration order is least recently refreshed first
+            Snapshot previous = snapshots.remove(key);
+            if (previous != null) {
+                bytes -= previous.body().length;
+            }
+            snapshots.put(key, snapshot);
+            bytes += body.length;
+
+            Iterator<Snapshot> eldest = snapshots.values().iterator();
+            while ((snapshots.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= eldest.next().body().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    public Snapshot get(String key) {
+        if (key == null) {
+            return null;
+        }
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(key);
+        }
+        if (snapshot == null || System.currentTimeMillis() - snapshot.storedAtMs() > maxStaleMs) {
+            missing.increment();
+            return null;
+        }
+        served.increment();
+        return snapshot;
+    }
+
+    private int size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    private long bytes() {
+        synchronized (snapshots) {
+            return bytes;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// Every lb:// service, including the routes the discovery locator creates, is balanced by PeakEwmaLoadBalancer
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LoadBalancerConfig.PeakEwmaConfiguration.class)
+public class LoadBalancerConfig {
+
+    // Loaded into each service's own load balancer context, so it is deliberately not a @Configuration of this one
+    static class PeakEwmaConfiguration {
+
+        @Bean
+        public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(Environment environment,
+                                                                                       LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                                       InstanceLoadTracker instanceLoadTracker) {
+            String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+            return new PeakEwmaLoadBalancer(loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class),
+                    name, instanceLoadTracker);
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Power of two choices: of two random instances, the one with the lower peak-EWMA latency times in-flight requests
+// gets the request. A slow replica loses traffic within a few responses instead of keeping its round-robin share,
+// and comparing only two keeps gateway nodes from herding onto the same "best" instance.
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final InstanceLoadTracker tracker;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                String serviceId,
+                                InstanceLoadTracker tracker) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.tracker = tracker;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes") // the ReactorLoadBalancer signature itself takes a raw Request
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            ServiceInstance instance = pick(instances, System.nanoTime());
+            return instance == null ? new EmptyResponse() : new DefaultResponse(instance);
+        });
+    }
+
+    ServiceInstance pick(List<ServiceInstance> instances, long now) {
+        int size = instances.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return tracker.load(a).score(now) <= tracker.load(b).score(now) ? a : b;
+    }
+
+    @Override
+    public String toString() {
+        return "PeakEwmaLoadBalancer{serviceId='" + serviceId + "'}";
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.Setter;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collapses concurrent identical GETs into one upstream call: the first request goes through, later ones with the same
+// path, query and key headers wait for its response and get a copy. A refetch storm after a revision change then costs
+// one backend request per environment on each gateway node.
+@Component
+public class RequestCoalescingGatewayFilterFactory extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    @Getter
+    @Setter
+    public static class Config {
+        // Request headers the response depends on; requests are only coalesced when the first one is present
+        private List<String> headers = List.of("x-sdk-key", HttpHeaders.IF_NONE_MATCH, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private record Captured(int status, HttpHeaders headers, byte[] body) {
+    }
+
+    private final Map<String, Sinks.One<Captured>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.leaders = meterRegistry.counter("rollout.gateway.coalesced", "role", "leader");
+        this.followers = meterRegistry.counter("rollout.gateway.coalesced", "role", "follower");
+        meterRegistry.gaugeMapSize("rollout.gateway.coalesced.in-flight", List.of(), inFlight);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String key = key(exchange.getRequest(), config.getHeaders());
+            if (key == null) {
+                return chain.filter(exchange);
+            }
+
+            Sinks.One<Captured> sink = Sinks.one();
+            Sinks.One<Captured> leader = inFlight.putIfAbsent(key, sink);
+            if (leader != null) {
+                followers.increment();
+                // A leader whose client went away never got a response; its followers then make their own call
+                return leader.asMono()
+                        .flatMap(captured -> write(exchange.getResponse(), captured))
+                        .onErrorResume(CancellationException.class, e -> chain.filter(exchange));
+            }
+
+            leaders.increment();
+            CapturingResponse response = new CapturingResponse(exchange.getResponse());
+            return chain.filter(exchange.mutate().response(response).build())
+                    .then(Mono.defer(() -> {
+                        Captured captured = response.captured();
+                        inFlight.remove(key, sink);
+                        sink.tryEmitValue(captured);
+                        return response.release(captured);
+                    }))
+                    .doOnError(e -> {
+                        inFlight.remove(key, sink);
+                        sink.tryEmitError(e);
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL) {
+                            inFlight.remove(key, sink);
+                            sink.tryEmitError(new CancellationException());
+                        }
+                    });
+        };
+    }
+
+    private static String key(ServerHttpRequest request, List<String> headers) {
+        if (request.getMethod() != HttpMethod.GET || headers.isEmpty() || request.getHeaders().getFirst(headers.get(0)) == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(request.getURI().getRawPath()).append('?');
+        if (request.getURI().getRawQuery() != null) {
+            key.append(request.getURI().getRawQuery());
+        }
+        for (String header : headers) {
+            key.append('\n').append(request.getHeaders().getOrDefault(header, List.of()));
+        }
+        return key.toString();
+    }
+
+    // Headers the follower already has (its own correlation id, rate limit state) are kept as they are
+    private static Mono<Void> write(ServerHttpResponse response, Captured captured) {
+        response.setRawStatusCode(captured.status());
+        captured.headers().forEach((name, values) -> {
+            if (!response.getHeaders().containsKey(name)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        return writeBody(response, captured.body());
+    }
+
+    private static Mono<Void> writeBody(ServerHttpResponse response, byte[] body) {
+        if (body.length == 0) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    // Holds the upstream body back until it is complete, so the same bytes can go to the leader and every follower
+    private static final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private byte[] body = new byte[0];
+
+        CapturingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(Flux.from(body))
+                    .doOnNext(joined -> {
+                        byte[] bytes = new byte[joined.readableByteCount()];
+                        joined.read(bytes);
+                        DataBufferUtils.release(joined);
+                        this.body = bytes;
+                    })
+                    .then();
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).concatMap(Flux::from));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.empty();
+        }
+
+        Captured captured() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(getDelegate().getHeaders());
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            Integer status = getDelegate().getRawStatusCode();
+            return new Captured(status == null ? 200 : status, headers, body);
+        }
+
+        Mono<Void> release(Captured captured) {
+            return writeBody(getDelegate(), captured.body());
+        }
+
+    }
+
+}
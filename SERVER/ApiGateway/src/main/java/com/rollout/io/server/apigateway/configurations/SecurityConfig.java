@@ -3,27 +3,38 @@ package com.rollout.io.server.apigateway.configurations;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rollout.io.server.apigateway.objects.ApiResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpResponse;
-import org.springframework.security.config.Customizer;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManagerResolver;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 import org.springframework.web.reactive.config.CorsRegistry;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Configuration
 @EnableWebFluxSecurity
 @RequiredArgsConstructor
 public class SecurityConfig implements WebFluxConfigurer {
 
     private final ObjectMapper objectMapper;
+    private final CachingReactiveJwtDecoder jwtDecoder;
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -31,7 +42,7 @@ public class SecurityConfig implements WebFluxConfigurer {
     }
 
     @Bean
-    SecurityWebFilterChain filterChain(ServerHttpSecurity http) {
+    SecurityWebFilterChain filterChain(ServerHttpSecurity http, @Value("${rollout.security.token-cache.bypass:}") List<String> tokenCacheBypass) {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .cors(ServerHttpSecurity.CorsSpec::disable)
@@ -45,7 +56,8 @@ public class SecurityConfig implements WebFluxConfigurer {
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
                                 "/webjars/**",
-                                "/swagger-ui.html"
+                                "/swagger-ui.html",
+                                "/api/v1/core-flags/by-sdk-key"
                         ).permitAll().anyExchange().authenticated())
                 .exceptionHandling(
                         ex -> ex
@@ -66,7 +78,25 @@ public class SecurityConfig implements WebFluxConfigurer {
                             "Please ensure you have the necessary permissions. Contact helpdesk@rollout-io.com");
 
             return writeResponse(exchange, apiResponse, HttpStatus.FORBIDDEN);
-        })).oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults())).build();
+        })).oauth2ResourceServer(oauth2 -> oauth2.authenticationManagerResolver(authenticationManagerResolver(tokenCacheBypass))).build();
+    }
+
+    // Entries are "METHOD /path/pattern" or just a pattern; matching requests skip the verified-token cache
+    private ReactiveAuthenticationManagerResolver<ServerWebExchange> authenticationManagerResolver(List<String> bypass) {
+        ReactiveAuthenticationManager cached = new JwtReactiveAuthenticationManager(jwtDecoder);
+        ReactiveAuthenticationManager fresh = new JwtReactiveAuthenticationManager(jwtDecoder.uncached());
+        List<ServerWebExchangeMatcher> matchers = bypass.stream()
+                .filter(entry -> !entry.isBlank())
+                .map(entry -> entry.trim().split("\\s+", 2))
+                .map(parts -> parts.length == 2
+                        ? ServerWebExchangeMatchers.pathMatchers(HttpMethod.valueOf(parts[0]), parts[1])
+                        : ServerWebExchangeMatchers.pathMatchers(parts[0]))
+                .collect(Collectors.toList());
+        ServerWebExchangeMatcher bypassMatcher = matchers.isEmpty()
+                ? exchange -> ServerWebExchangeMatcher.MatchResult.notMatch()
+                : new OrServerWebExchangeMatcher(matchers);
+        return exchange -> bypassMatcher.matches(exchange)
+                .map(result -> result.isMatch() ? fresh : cached);
     }
 
     private Mono<Void> writeResponse(ServerWebExchange exchange, ApiResponse<Object> apiResponse, HttpStatus status) {
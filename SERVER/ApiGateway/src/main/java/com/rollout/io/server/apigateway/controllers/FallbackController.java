@@ -1,20 +1,46 @@
 package com.rollout.io.server.apigateway.controllers;
 
+import com.rollout.io.server.apigateway.configurations.LastKnownGoodStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/fallback")
+@RequiredArgsConstructor
 public class FallbackController {
 
+    private final LastKnownGoodStore lastKnownGoodStore;
+
+    // SDK requests get the last config the service returned for their key, marked stale, instead of losing it
     @GetMapping("/features")
-    public ResponseEntity<String> featureFallback() {
-        return ResponseEntity
-                .status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body("Feature Service is temporarily unavailable. Please try again later.");
+    public ResponseEntity<?> featureFallback(ServerWebExchange exchange) {
+        LastKnownGoodStore.Snapshot snapshot = lastKnownGoodStore.get(exchange.getAttribute(LastKnownGoodStore.KEY_ATTRIBUTE));
+        if (snapshot == null) {
+            return ResponseEntity
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Feature Service is temporarily unavailable. Please try again later.");
+        }
+
+        long ageSeconds = Math.max(0, (System.currentTimeMillis() - snapshot.storedAtMs()) / 1000);
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(snapshot.headers());
+        headers.set(HttpHeaders.AGE, Long.toString(ageSeconds));
+        headers.set(LastKnownGoodStore.STALE_HEADER, "true");
+
+        List<String> ifNoneMatch = exchange.getRequest().getHeaders().getIfNoneMatch();
+        String etag = snapshot.headers().getETag();
+        if (etag != null && ifNoneMatch.contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        return ResponseEntity.ok().headers(headers).body(snapshot.body());
     }
 
 }
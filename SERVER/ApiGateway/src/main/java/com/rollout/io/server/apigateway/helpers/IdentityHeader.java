@@ -0,0 +1,38 @@
+package com.rollout.io.server.apigateway.helpers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.apigateway.objects.Helper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Map;
+
+// Identity forwarded to the services once the gateway has verified the caller's JWT:
+// base64url(claims JSON) "." base64url(HMAC-SHA256 of the first part)
+@Helper
+public class IdentityHeader {
+
+    public static final String NAME = "X-Rollout-Identity";
+    public static final String EXPIRES = "hx"; // epoch seconds after which the header itself is no longer accepted
+
+    private IdentityHeader() {
+        // Private constructor to hide the implicit public one in utility classes
+    }
+
+    public static String sign(Map<String, Object> claims, byte[] secret, ObjectMapper objectMapper) {
+        try {
+            String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(claims));
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+            return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign identity header", e);
+        }
+    }
+
+}
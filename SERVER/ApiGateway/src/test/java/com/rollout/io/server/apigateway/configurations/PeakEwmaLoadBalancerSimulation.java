@@ -0,0 +1,102 @@
+package com.rollout.io.server.apigateway.configurations;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+// Discrete-event simulation of one gateway node in front of five replicas, one of them degraded (a GC-bound or
+// cold instance ten times slower than the rest), comparing round robin with PeakEwmaLoadBalancer. Run as a plain
+// main; it is not part of the test suite.
+public class PeakEwmaLoadBalancerSimulation {
+
+    private static final int INSTANCES = 5;
+    private static final int REQUESTS = 200_000;
+    private static final double ARRIVALS_PER_SECOND = 1_000;
+    private static final double HEALTHY_MEAN_MS = 20;
+    private static final double DEGRADED_MEAN_MS = 200;
+    // Each request already in flight on an instance slows the next one by this fraction
+    private static final double CONTENTION = 0.02;
+
+    private record Completion(long at, ServiceInstance instance, long startedAt) {
+    }
+
+    public static void main(String[] args) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new DefaultServiceInstance("cps-" + i, "controlplaneservice", "10.0.0." + i, 5002, false));
+        }
+
+        int[] next = {0};
+        report("round robin", run(instances, (list, now) -> list.get(next[0]++ % list.size()), null));
+
+        InstanceLoadTracker tracker = new InstanceLoadTracker(10_000);
+        PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(null, "controlplaneservice", tracker);
+        report("p2c peak-ewma", run(instances, balancer::pick, tracker));
+    }
+
+    private static long[] run(List<ServiceInstance> instances, BiFunction<List<ServiceInstance>, Long, ServiceInstance> pick,
+                              InstanceLoadTracker tracker) {
+        Random random = new Random(42);
+        ServiceInstance degraded = instances.get(0);
+        Map<ServiceInstance, int[]> inFlight = new HashMap<>();
+        instances.forEach(instance -> inFlight.put(instance, new int[1]));
+        PriorityQueue<Completion> completions = new PriorityQueue<>((a, b) -> Long.compare(a.at(), b.at()));
+        long[] latencies = new long[REQUESTS];
+
+        long now = 0;
+        int completed = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            now += (long) (exponential(random, 1_000 / ARRIVALS_PER_SECOND) * 1_000_000);
+            while (!completions.isEmpty() && completions.peek().at() <= now) {
+                latencies[completed++] = complete(completions.poll(), inFlight, tracker);
+            }
+
+            ServiceInstance instance = pick.apply(instances, now);
+            int pending = inFlight.get(instance)[0]++;
+            if (tracker != null) {
+                tracker.load(instance).inFlight.incrementAndGet();
+            }
+            double mean = instance == degraded ? DEGRADED_MEAN_MS : HEALTHY_MEAN_MS;
+            double latencyMs = (1 + exponential(random, mean)) * (1 + CONTENTION * pending);
+            completions.add(new Completion(now + (long) (latencyMs * 1_000_000), instance, now));
+        }
+        while (!completions.isEmpty()) {
+            latencies[completed++] = complete(completions.poll(), inFlight, tracker);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long complete(Completion completion, Map<ServiceInstance, int[]> inFlight, InstanceLoadTracker tracker) {
+        inFlight.get(completion.instance())[0]--;
+        long latency = completion.at() - completion.startedAt();
+        if (tracker != null) {
+            InstanceLoadTracker.Load load = tracker.load(completion.instance());
+            load.inFlight.decrementAndGet();
+            load.observe(latency, completion.at());
+        }
+        return latency;
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private static void report(String name, long[] sorted) {
+        System.out.printf("%-14s p50 %7.1f ms   p90 %7.1f ms   p99 %7.1f ms   p99.9 %7.1f ms%n", name,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(quantile * sorted.length))] / 1e6;
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.rollout.io.server.authservice.configuration;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps the issuer's signing keys in memory and refreshes them in the background before their max-age runs out,
+// so requests never wait on a JWKS fetch. Concurrent refreshes share one fetch; a failed refresh keeps the
+// last keys and retries with backoff. Only a token signed by an unknown key waits, briefly, for a refetch.
+@Slf4j
+public class JwksManager implements JWKSource<SecurityContext>, AutoCloseable {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final String jwkSetUri;
+    private final String issuerUri;
+    private final Duration defaultTtl;
+    private final Duration minRefreshInterval;
+    private final Duration unknownKeyWait;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicReference<CompletableFuture<JWKSet>> inFlight = new AtomicReference<>();
+    private volatile JWKSet keys = new JWKSet();
+    private volatile URI resolvedUri;
+    private volatile long lastAttemptMs;
+    private volatile long lastSuccessMs;
+    private long failureBackoffMs;
+    private ScheduledFuture<?> nextRefresh;
+
+    private final Counter refreshed;
+    private final Counter failed;
+
+    public JwksManager(String jwkSetUri, String issuerUri, Duration defaultTtl, Duration minRefreshInterval,
+                       Duration unknownKeyWait, MeterRegistry meterRegistry) {
+        if (jwkSetUri == null && issuerUri == null) {
+            throw new IllegalStateException("spring.security.oauth2.resourceserver.jwt.issuer-uri or jwk-set-uri is required");
+        }
+        this.jwkSetUri = jwkSetUri;
+        this.issuerUri = issuerUri;
+        this.defaultTtl = defaultTtl;
+        this.minRefreshInterval = minRefreshInterval;
+        this.unknownKeyWait = unknownKeyWait;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.refreshed = meterRegistry.counter("rollout.security.jwks.refresh", "result", "success");
+        this.failed = meterRegistry.counter("rollout.security.jwks.refresh", "result", "failure");
+        meterRegistry.gauge("rollout.security.jwks.age", this, manager -> manager.lastSuccessMs == 0
+                ? Double.NaN : (System.currentTimeMillis() - manager.lastSuccessMs) / 1000.0);
+    }
+
+    // Prefetch before the first request; an unreachable issuer doesn't block startup, the retries take over
+    public void start(Duration wait) {
+        try {
+            refresh(false).get(wait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("JWKS not loaded within {}; continuing with background retries", wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        try {
+            return select(selector).get(unknownKeyWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return selector.select(keys);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeySourceException("Interrupted while waiting for JWKS", e);
+        }
+    }
+
+    // Completes at once when a current key matches; otherwise after an on-demand refresh, which catches
+    // keys rotated in before the scheduled refresh got to them
+    public CompletableFuture<List<JWK>> select(JWKSelector selector) {
+        List<JWK> matches = selector.select(keys);
+        if (!matches.isEmpty()) {
+            return CompletableFuture.completedFuture(matches);
+        }
+        return refresh(true).thenApply(selector::select);
+    }
+
+    private CompletableFuture<JWKSet> refresh(boolean onDemand) {
+        CompletableFuture<JWKSet> current = inFlight.get();
+        if (current != null) {
+            return current;
+        }
+        // Tokens with made-up key ids must not turn into a fetch each
+        if (onDemand && System.currentTimeMillis() - lastAttemptMs < minRefreshInterval.toMillis()) {
+            return CompletableFuture.completedFuture(keys);
+        }
+
+        CompletableFuture<JWKSet> fetch = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, fetch)) {
+            current = inFlight.get();
+            return current != null ? current : CompletableFuture.completedFuture(keys);
+        }
+        lastAttemptMs = System.currentTimeMillis();
+        scheduler.execute(() -> fetchInto(fetch));
+        return fetch;
+    }
+
+    private void fetchInto(CompletableFuture<JWKSet> fetch) {
+        long nextDelayMs;
+        try {
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(jwkSetUri())
+                    .timeout(Duration.ofSeconds(10)).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("JWKS endpoint returned " + response.statusCode());
+            }
+            keys = JWKSet.parse(response.body());
+            lastSuccessMs = System.currentTimeMillis();
+            failureBackoffMs = 0;
+            refreshed.increment();
+
+            // Refresh when 80% of the advertised max-age has passed, well before the keys could be stale
+            long maxAgeMs = response.headers().firstValue("Cache-Control")
+                    .map(MAX_AGE::matcher)
+                    .filter(Matcher::find)
+                    .map(matcher -> Long.parseLong(matcher.group(1)) * 1000)
+                    .orElse(defaultTtl.toMillis());
+            nextDelayMs = Math.max(maxAgeMs * 8 / 10, minRefreshInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.set(null);
+            fetch.complete(keys);
+            return;
+        } catch (Exception e) {
+            failed.increment();
+            failureBackoffMs = failureBackoffMs == 0 ? 1000 : Math.min(failureBackoffMs * 2, defaultTtl.toMillis());
+            nextDelayMs = failureBackoffMs;
+            log.warn("JWKS refresh failed, keeping {} known keys: {}", keys.getKeys().size(), e.toString());
+        }
+
+        inFlight.set(null);
+        fetch.complete(keys);
+        schedule(nextDelayMs);
+    }
+
+    private synchronized void schedule(long delayMs) {
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        if (!scheduler.isShutdown()) {
+            nextRefresh = scheduler.schedule(() -> refresh(false), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private URI jwkSetUri() throws Exception {
+        if (resolvedUri == null) {
+            if (jwkSetUri != null) {
+                resolvedUri = URI.create(jwkSetUri);
+            } else {
+                // Discovered once from the issuer's OpenID configuration
+                String configuration = httpClient.send(HttpRequest.newBuilder(URI.create(issuerUri.replaceAll("/$", "") + "/.well-known/openid-configuration"))
+                        .timeout(Duration.ofSeconds(10)).GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+                resolvedUri = URI.create(JSONObjectUtils.getString(JSONObjectUtils.parse(configuration), "jwks_uri"));
+            }
+        }
+        return resolvedUri;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
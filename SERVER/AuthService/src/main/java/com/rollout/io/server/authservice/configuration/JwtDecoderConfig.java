@@ -0,0 +1,78 @@
+package com.rollout.io.server.authservice.configuration;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Builds the decoder from the usual spring.security.oauth2.resourceserver.jwt properties, with signing keys from the
+// background-refreshed JwksManager and the verified-token cache in front
+@Configuration
+public class JwtDecoderConfig {
+
+    @Bean(destroyMethod = "close")
+    public JwksManager jwksManager(OAuth2ResourceServerProperties properties,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${rollout.security.jwks.default-ttl-seconds:300}") long defaultTtlSeconds,
+                                   @Value("${rollout.security.jwks.min-refresh-interval-seconds:30}") long minRefreshIntervalSeconds,
+                                   @Value("${rollout.security.jwks.unknown-key-wait-ms:2000}") long unknownKeyWaitMs,
+                                   @Value("${rollout.security.jwks.startup-wait-ms:5000}") long startupWaitMs) {
+        JwksManager manager = new JwksManager(properties.getJwt().getJwkSetUri(), properties.getJwt().getIssuerUri(),
+                Duration.ofSeconds(defaultTtlSeconds), Duration.ofSeconds(minRefreshIntervalSeconds),
+                Duration.ofMillis(unknownKeyWaitMs), meterRegistry);
+        manager.start(Duration.ofMillis(startupWaitMs));
+        return manager;
+    }
+
+    @Bean
+    public CachingJwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties,
+                                        JwksManager jwksManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${rollout.security.token-cache.max-size:10000}") int maxSize) {
+        OAuth2ResourceServerProperties.Jwt jwt = properties.getJwt();
+        Set<JWSAlgorithm> algorithms = jwt.getJwsAlgorithms().stream().map(JWSAlgorithm::parse).collect(Collectors.toSet());
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms, jwksManager));
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+            // Claims are checked by the validators below
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(validator(jwt));
+        return new CachingJwtDecoder(decoder, maxSize, meterRegistry);
+    }
+
+    private OAuth2TokenValidator<Jwt> validator(OAuth2ResourceServerProperties.Jwt properties) {
+        List<OAuth2TokenValidator<Jwt>> validators = new ArrayList<>();
+        validators.add(properties.getIssuerUri() != null
+                ? JwtValidators.createDefaultWithIssuer(properties.getIssuerUri())
+                : JwtValidators.createDefault());
+        List<String> audiences = properties.getAudiences();
+        if (audiences != null && !audiences.isEmpty()) {
+            validators.add(new JwtClaimValidator<Collection<String>>(JwtClaimNames.AUD,
+                    aud -> aud != null && aud.stream().anyMatch(audiences::contains)));
+        }
+        return new DelegatingOAuth2TokenValidator<>(validators);
+    }
+
+}
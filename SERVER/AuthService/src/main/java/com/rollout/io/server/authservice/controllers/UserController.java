@@ -7,6 +7,7 @@ import com.rollout.io.server.authservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/users")
 @RequiredArgsConstructor
@@ -55,6 +58,15 @@ public class UserController {
         return ApiResponseBuilder.out(HttpStatus.OK, "Project ID added successfully", userService.addProjectId(jwt, projectId));
     }
 
+    @PostMapping("/me/projects/batch")
+    @Operation(summary = "Add Project IDs", description = "Adds several project IDs to the user's list of associated projects in one update.")
+    public ResponseEntity<ApiResponse<User>> addProjectIds(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestBody @NotEmpty List<@NotBlank String> projectIds
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Project IDs added successfully", userService.addProjectIds(jwt, projectIds));
+    }
+
     @DeleteMapping("/me")
     @Operation(summary = "Delete User", description = "Permanently deletes the current user's account.")
     public ResponseEntity<ApiResponse<Void>> deleteUser(@AuthenticationPrincipal Jwt jwt) {
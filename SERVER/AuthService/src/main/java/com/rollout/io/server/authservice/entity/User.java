@@ -1,5 +1,6 @@
 package com.rollout.io.server.authservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
@@ -41,4 +42,9 @@ public class User {
     private Instant createdAt;
 
     private Instant updatedAt;
+
+    // SHA-256 of the identity claims as of the last sync, so a profile edited here is only overwritten when the
+    // provider's copy changes. Hashes stored as integers by earlier versions read back as strings that never match.
+    @JsonIgnore
+    private String claimsHash;
 }
\ No newline at end of file
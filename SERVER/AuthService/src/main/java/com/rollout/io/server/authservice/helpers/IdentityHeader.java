@@ -0,0 +1,64 @@
+package com.rollout.io.server.authservice.helpers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.authservice.objects.Helper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+
+// Reads the identity the gateway forwards after verifying the caller's JWT: base64url(claims JSON) "." base64url(HMAC-SHA256)
+@Helper
+public class IdentityHeader {
+
+    public static final String NAME = "X-Rollout-Identity";
+    public static final String EXPIRES = "hx"; // epoch seconds after which the header itself is no longer accepted
+
+    private static final TypeReference<Map<String, Object>> CLAIMS = new TypeReference<>() {
+    };
+
+    private IdentityHeader() {
+        // Private constructor to hide the implicit public one in utility classes
+    }
+
+    // The verified claims, or null if the header is malformed, forged or expired
+    public static Map<String, Object> verify(String header, byte[] secret, ObjectMapper objectMapper) {
+        int dot = header.indexOf('.');
+        if (dot <= 0 || dot == header.length() - 1) {
+            return null;
+        }
+        try {
+            byte[] expected = mac(header.substring(0, dot), secret);
+            byte[] actual = Base64.getUrlDecoder().decode(header.substring(dot + 1));
+            if (!MessageDigest.isEqual(expected, actual)) {
+                return null;
+            }
+            Map<String, Object> claims = objectMapper.readValue(Base64.getUrlDecoder().decode(header.substring(0, dot)), CLAIMS);
+            Object expires = claims.get(EXPIRES);
+            if (!(expires instanceof Number seconds) || seconds.longValue() < Instant.now().getEpochSecond()) {
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] mac(String payload, byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.rollout.io.server.authservice.logic;
+
+import com.rollout.io.server.authservice.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+// Automatic index creation is off, so the annotated user indexes are created here explicitly. The unique index on
+// firebaseUid is what turns a concurrent first login's second insert into the DuplicateKeyException upsertUser retries.
+@Slf4j
+@Component
+public class IndexBootstrap {
+
+    private final MongoTemplate mongoTemplate;
+
+    public IndexBootstrap(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(User.class);
+        for (IndexDefinition index : resolver.resolveIndexFor(User.class)) {
+            try {
+                indexOps.ensureIndex(index);
+            } catch (RuntimeException e) {
+                // Existing duplicates block a unique index; until they are merged, concurrent first logins can duplicate users
+                log.error("Could not create index {} on users", index.getIndexKeys(), e);
+            }
+        }
+    }
+
+}
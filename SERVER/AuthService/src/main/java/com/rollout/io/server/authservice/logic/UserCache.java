@@ -0,0 +1,80 @@
+package com.rollout.io.server.authservice.logic;
+
+import com.rollout.io.server.authservice.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Users by firebase uid for a short TTL, so repeated /me calls are answered without a Mongo round trip. Every write
+// in this instance refreshes its entry; writes from other instances become visible once the TTL runs out.
+@Component
+public class UserCache {
+
+    private record Entry(User user, long expiresAtMs) {
+    }
+
+    private final long ttlMs;
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserCache(@Value("${rollout.users.cache.ttl-ms:30000}") long ttlMs,
+                     @Value("${rollout.users.cache.max-size:10000}") int maxSize,
+                     MeterRegistry meterRegistry) {
+        this.ttlMs = ttlMs;
+        this.maxSize = maxSize;
+
+        this.hits = meterRegistry.counter("rollout.users.cache", "result", "hit");
+        this.misses = meterRegistry.counter("rollout.users.cache", "result", "miss");
+        meterRegistry.gaugeMapSize("rollout.users.cache.size", List.of(), entries);
+    }
+
+    public User get(String uid) {
+        Entry entry = entries.get(uid);
+        if (entry != null) {
+            if (entry.expiresAtMs() > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.user();
+            }
+            entries.remove(uid, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    public User put(User user) {
+        if (ttlMs <= 0 || user == null || user.getFirebaseUid() == null) {
+            return user;
+        }
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(user.getFirebaseUid(), new Entry(user, now + ttlMs));
+        return user;
+    }
+
+    public void evict(String uid) {
+        entries.remove(uid);
+    }
+
+    // Expired users go first; if the cache is still full, an arbitrary tenth makes room
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAtMs() <= now);
+        Iterator<String> keys = entries.keySet().iterator();
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+}
@@ -4,18 +4,48 @@ import com.rollout.io.server.authservice.entity.User;
 import com.rollout.io.server.authservice.exceptions.RolloutError;
 import com.rollout.io.server.authservice.repository.UserRepository;
 import com.rollout.io.server.authservice.service.UserService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 
 @Service
-@RequiredArgsConstructor
 public class UserServiceLogic implements UserService {
 
+    private static final int MAX_PROJECT_BATCH = 1000;
+
     private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final Timer projectWrites;
+
+    public UserServiceLogic(UserRepository userRepository,
+                            MongoTemplate mongoTemplate,
+                            UserCache userCache,
+                            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.projectWrites = Timer.builder("rollout.users.projects.write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     @Override
     public User syncUser(Jwt jwt) {
@@ -29,21 +59,81 @@ public class UserServiceLogic implements UserService {
         String name = jwt.getClaim("name");
         String picture = jwt.getClaim("picture");
         Boolean verified = jwt.getClaim("email_verified");
+        String claims = claimsHash(name, picture, verified);
 
-        return userRepository.findByFirebaseUid(uid)
-                .orElseGet(() ->
-                        userRepository.save(
-                                User.builder()
-                                        .firebaseUid(uid)
-                                        .email(email)
-                                        .displayName(name)
-                                        .pictureUrl(picture)
-                                        .emailVerified(Boolean.TRUE.equals(verified))
-                                        .createdAt(Instant.now())
-                                        .build()
-                        )
-                );
+        // Steady state: the cached user already reflects these claims, so Mongo is not touched at all
+        User cached = userCache.get(uid);
+        if (cached != null && Objects.equals(cached.getClaimsHash(), claims)) {
+            return cached;
+        }
 
+        User user = cached != null ? cached : upsertUser(uid, email, name, picture, verified, claims);
+        if (!Objects.equals(user.getClaimsHash(), claims)) {
+            user = applyClaims(user, name, picture, verified, claims);
+            if (user == null) {
+                user = upsertUser(uid, email, name, picture, verified, claims);
+            }
+        }
+        return userCache.put(user);
+    }
+
+    // One atomic upsert that returns the existing user untouched, so concurrent first logins cannot both insert
+    private User upsertUser(String uid, String email, String name, String picture, Boolean verified, String claims) {
+        Query query = new Query(Criteria.where("firebaseUid").is(uid));
+        Update update = new Update()
+                .setOnInsert("email", email)
+                .setOnInsert("displayName", name)
+                .setOnInsert("pictureUrl", picture)
+                .setOnInsert("emailVerified", Boolean.TRUE.equals(verified))
+                .setOnInsert("claimsHash", claims)
+                .setOnInsert("createdAt", Instant.now());
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        try {
+            return mongoTemplate.findAndModify(query, update, options, User.class);
+        } catch (DuplicateKeyException e) {
+            // The losing side of a concurrent insert; the winner's document is there now
+            return mongoTemplate.findAndModify(query, update, options, User.class);
+        }
+    }
+
+    // Returns null when the user no longer exists
+    private User applyClaims(User user, String name, String picture, Boolean verified, String claims) {
+        Update update = new Update().set("claimsHash", claims);
+        boolean changed = false;
+        // Users synced before claims were tracked keep their profile; only later provider changes are applied
+        if (user.getClaimsHash() != null) {
+            if (name != null && !name.equals(user.getDisplayName())) {
+                update.set("displayName", name);
+                changed = true;
+            }
+            if (picture != null && !picture.equals(user.getPictureUrl())) {
+                update.set("pictureUrl", picture);
+                changed = true;
+            }
+        }
+        if (verified != null && verified != user.isEmailVerified()) {
+            update.set("emailVerified", verified);
+            changed = true;
+        }
+        if (changed) {
+            update.set("updatedAt", Instant.now());
+        }
+        return mongoTemplate.findAndModify(new Query(Criteria.where("firebaseUid").is(user.getFirebaseUid())),
+                update, FindAndModifyOptions.options().returnNew(true), User.class);
+    }
+
+    // Each claim is length-prefixed, with -1 for a missing one, so no two claim sets encode to the same input
+    private static String claimsHash(String name, String picture, Boolean verified) {
+        StringBuilder encoded = new StringBuilder();
+        for (String claim : new String[]{name, picture, verified == null ? null : verified.toString()}) {
+            encoded.append(claim == null ? -1 : claim.length()).append(':').append(claim == null ? "" : claim);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(encoded.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
@@ -51,7 +141,7 @@ public class UserServiceLogic implements UserService {
         User user = getUserByJwt(jwt);
         user.setDisplayName(displayName);
         user.setUpdatedAt(Instant.now());
-        return userRepository.save(user);
+        return userCache.put(userRepository.save(user));
     }
 
     @Override
@@ -59,38 +149,62 @@ public class UserServiceLogic implements UserService {
         User user = getUserByJwt(jwt);
         user.setPictureUrl(pictureUrl);
         user.setUpdatedAt(Instant.now());
-        return userRepository.save(user);
+        return userCache.put(userRepository.save(user));
     }
 
     @Override
     public User addProjectId(Jwt jwt, String projectId) {
-        User user = getUserByJwt(jwt);
-        if (user.getProjectIds() == null) {
-            user.setProjectIds(new java.util.HashSet<>());
+        return updateProjectIds(jwt, new Update().addToSet("projectIds", projectId));
+    }
+
+    @Override
+    public User addProjectIds(Jwt jwt, Collection<String> projectIds) {
+        if (projectIds == null || projectIds.isEmpty()) {
+            throw new RolloutError("At least one project ID is required", HttpStatus.BAD_REQUEST);
         }
-        user.getProjectIds().add(projectId);
-        user.setUpdatedAt(Instant.now());
-        return userRepository.save(user);
+        if (projectIds.size() > MAX_PROJECT_BATCH) {
+            throw new RolloutError("At most " + MAX_PROJECT_BATCH + " project IDs can be added at once", HttpStatus.BAD_REQUEST);
+        }
+        if (projectIds.stream().anyMatch(projectId -> projectId == null || projectId.isBlank())) {
+            throw new RolloutError("Project IDs must not be blank", HttpStatus.BAD_REQUEST);
+        }
+        return updateProjectIds(jwt, new Update().addToSet("projectIds").each(new LinkedHashSet<>(projectIds).toArray()));
     }
 
     @Override
     public void deleteUser(Jwt jwt) {
         User user = getUserByJwt(jwt);
         userRepository.delete(user);
+        userCache.evict(user.getFirebaseUid());
     }
 
     @Override
     public User removeProjectId(Jwt jwt, String projectId) {
-        User user = getUserByJwt(jwt);
-        if (user.getProjectIds() != null && user.getProjectIds().contains(projectId)) {
-            user.getProjectIds().remove(projectId);
-            user.setUpdatedAt(Instant.now());
-            return userRepository.save(user);
+        return updateProjectIds(jwt, new Update().pull("projectIds", projectId));
+    }
+
+    // $addToSet/$pull apply server-side in one round trip, so concurrent project changes cannot overwrite each other
+    private User updateProjectIds(Jwt jwt, Update update) {
+        String uid = getUidFromJwt(jwt);
+        Timer.Sample sample = Timer.start();
+        User user = mongoTemplate.findAndModify(new Query(Criteria.where("firebaseUid").is(uid)),
+                update.set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        sample.stop(projectWrites);
+        if (user == null) {
+            throw new RolloutError("User not found with uid: " + uid, HttpStatus.NOT_FOUND);
         }
-        return user;
+        return userCache.put(user);
     }
 
     private User getUserByJwt(Jwt jwt) {
+        String uid = getUidFromJwt(jwt);
+        return userRepository.findByFirebaseUid(uid)
+                .orElseThrow(() -> new RolloutError("User not found with uid: " + uid, HttpStatus.NOT_FOUND));
+    }
+
+    private String getUidFromJwt(Jwt jwt) {
         if (jwt == null) {
             throw new RolloutError("Invalid authentication token", HttpStatus.UNAUTHORIZED);
         }
@@ -98,8 +212,7 @@ public class UserServiceLogic implements UserService {
         if (uid == null || uid.isBlank()) {
             throw new RolloutError("Invalid token: UID missing", HttpStatus.UNAUTHORIZED);
         }
-        return userRepository.findByFirebaseUid(uid)
-                .orElseThrow(() -> new RolloutError("User not found with uid: " + uid, HttpStatus.NOT_FOUND));
+        return uid;
     }
 
 }
@@ -4,6 +4,8 @@ import com.rollout.io.server.authservice.entity.User;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+
 @Service
 public interface UserService {
 
@@ -15,6 +17,8 @@ public interface UserService {
 
     User addProjectId(Jwt jwt, String projectId);
 
+    User addProjectIds(Jwt jwt, Collection<String> projectIds);
+
     void deleteUser(Jwt jwt);
 
     User removeProjectId(Jwt jwt, String projectId);
@@ -0,0 +1,117 @@
+package com.rollout.io.server.authservice.logic;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.rollout.io.server.authservice.entity.User;
+import com.rollout.io.server.authservice.repository.UserRepository;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Concurrent project additions against an in-memory mongo-java-server: UserServiceLogic's single $addToSet
+// findAndModify versus the former load, change and save. Reports per-call latency and how many additions were
+// lost to overlapping saves. The in-memory server has no network, journal or real lock contention, so absolute
+// numbers understate a real mongod; the relative cost and the lost updates carry over. Run as a plain main; it is
+// not part of the test suite.
+public class UserProjectWriteLoad {
+
+    private static final int USERS = 50;
+    private static final int THREADS = 16;
+    private static final int CALLS_PER_THREAD = 2_000;
+    private static final int EXISTING_PROJECTS = 200;
+
+    private interface Write {
+        void add(String uid, String projectId);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Without a logging config every command is logged at DEBUG, which would be most of what gets measured
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        MongoServer server = new MongoServer(new MemoryBackend());
+        try (MongoClient client = MongoClients.create(server.bindAndGetConnectionString())) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, "rollout");
+            UserRepository userRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(UserRepository.class);
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            UserServiceLogic logic = new UserServiceLogic(userRepository, mongoTemplate, new UserCache(30_000, 10_000, meterRegistry), meterRegistry);
+
+            seed(mongoTemplate);
+            run("$addToSet", mongoTemplate, (uid, projectId) -> logic.addProjectIds(jwt(uid), List.of(projectId)));
+
+            seed(mongoTemplate);
+            run("load+save", mongoTemplate, (uid, projectId) -> {
+                User user = userRepository.findByFirebaseUid(uid).orElseThrow();
+                user.getProjectIds().add(projectId);
+                userRepository.save(user);
+            });
+        } finally {
+            server.shutdownNow();
+        }
+    }
+
+    private static void seed(MongoTemplate mongoTemplate) {
+        mongoTemplate.dropCollection(User.class);
+        for (int u = 0; u < USERS; u++) {
+            Set<String> projectIds = new HashSet<>();
+            for (int p = 0; p < EXISTING_PROJECTS; p++) {
+                projectIds.add("existing-" + p);
+            }
+            mongoTemplate.insert(User.builder().firebaseUid("uid-" + u).email("user" + u + "@example.com").projectIds(projectIds).build());
+        }
+    }
+
+    private static void run(String name, MongoTemplate mongoTemplate, Write write) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[]>> results = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                long[] latencies = new long[CALLS_PER_THREAD];
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    String uid = "uid-" + ThreadLocalRandom.current().nextInt(USERS);
+                    long start = System.nanoTime();
+                    write.add(uid, "project-" + thread + "-" + i);
+                    latencies[i] = System.nanoTime() - start;
+                }
+                return latencies;
+            }));
+        }
+        long[] all = new long[THREADS * CALLS_PER_THREAD];
+        for (int t = 0; t < THREADS; t++) {
+            System.arraycopy(results.get(t).get(), 0, all, t * CALLS_PER_THREAD, CALLS_PER_THREAD);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        executor.shutdown();
+        Arrays.sort(all);
+
+        long stored = mongoTemplate.findAll(User.class).stream().mapToLong(user -> user.getProjectIds().size() - EXISTING_PROJECTS).sum();
+        System.out.printf("%-10s %7.0f ops/s   p50 %6.2f ms   p99 %6.2f ms   p99.9 %6.2f ms   lost %d of %d%n", name,
+                all.length / seconds, percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                all.length - stored, all.length);
+    }
+
+    private static Jwt jwt(String uid) {
+        return Jwt.withTokenValue("token").header("alg", "none").subject(uid).build();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(quantile * sorted.length))] / 1e6;
+    }
+
+}
@@ -3,7 +3,9 @@ package com.rollout.io.server.controlplaneservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @EnableDiscoveryClient
 @SpringBootApplication
 public class ControlPlaneServiceApplication {
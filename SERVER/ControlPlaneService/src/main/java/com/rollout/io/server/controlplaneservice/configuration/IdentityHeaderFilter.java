@@ -0,0 +1,62 @@
+package com.rollout.io.server.controlplaneservice.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.helpers.IdentityHeader;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+// Accepts the identity the gateway signed after verifying the JWT, so this service checks an HMAC instead of an RSA
+// signature. Requests without the header fall through to the regular bearer token check.
+public class IdentityHeaderFilter extends OncePerRequestFilter {
+
+    private final byte[] secret;
+    private final ObjectMapper objectMapper;
+    private final JwtAuthenticationConverter authenticationConverter = new JwtAuthenticationConverter();
+
+    public IdentityHeaderFilter(String secret, ObjectMapper objectMapper) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String header = request.getHeader(IdentityHeader.NAME);
+        if (header != null) {
+            // An invalid header authenticates nothing; only a bearer token, if one was sent, still can
+            Map<String, Object> claims = IdentityHeader.verify(header, secret, objectMapper);
+            if (claims != null) {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authenticationConverter.convert(toJwt(header, claims)));
+                SecurityContextHolder.setContext(context);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    // Rebuilt as a Jwt so controllers keep taking @AuthenticationPrincipal Jwt whichever way the caller was verified
+    private Jwt toJwt(String header, Map<String, Object> claims) {
+        return Jwt.withTokenValue(header)
+                .header("alg", "HS256")
+                .claims(values -> {
+                    values.putAll(claims);
+                    values.remove(IdentityHeader.EXPIRES);
+                    values.computeIfPresent(JwtClaimNames.IAT, (name, seconds) -> Instant.ofEpochSecond(((Number) seconds).longValue()));
+                    values.computeIfPresent(JwtClaimNames.EXP, (name, seconds) -> Instant.ofEpochSecond(((Number) seconds).longValue()));
+                })
+                .build();
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.rollout.io.server.controlplaneservice.configuration;
+
+import com.rollout.io.server.controlplaneservice.objects.SdkPayload;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+// Writes SDK bodies whose segments live off the heap on the request thread, segment by segment, so they are never
+// copied into one heap array. Boot registers it ahead of Jackson, which would otherwise serialize the payload object.
+@Component
+public class SdkPayloadMessageConverter extends AbstractHttpMessageConverter<SdkPayload> {
+
+    public SdkPayloadMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SdkPayload.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SdkPayload readInternal(Class<? extends SdkPayload> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("SDK payloads are only written", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(SdkPayload payload, MediaType contentType) {
+        return payload.getBody().stream().mapToLong(ByteBuffer::remaining).sum();
+    }
+
+    @Override
+    protected void writeInternal(SdkPayload payload, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        for (ByteBuffer segment : payload.getBody()) {
+            write(out, segment.duplicate());
+        }
+    }
+
+    // The stream is Spring Security's response wrapper, which only takes arrays: heap segments are written as they
+    // are, off-heap ones through the channel adapter's small transfer buffer, never as a whole heap copy
+    static void write(OutputStream out, ByteBuffer segment) throws IOException {
+        if (segment.hasArray()) {
+            out.write(segment.array(), segment.arrayOffset() + segment.position(), segment.remaining());
+        } else {
+            Channels.newChannel(out).write(segment);
+        }
+    }
+
+}
@@ -2,24 +2,36 @@ package com.rollout.io.server.controlplaneservice.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationManagerResolver;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class SecurityConfig implements WebMvcConfigurer {
 
     private final ObjectMapper objectMapper;
+    private final CachingJwtDecoder jwtDecoder;
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -27,8 +39,13 @@ public class SecurityConfig implements WebMvcConfigurer {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
-        http.csrf(AbstractHttpConfigurer::disable).cors(AbstractHttpConfigurer::disable).authorizeHttpRequests(auth -> auth.requestMatchers("/public/**", "/actuator/health", "/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll().anyRequest().authenticated()).exceptionHandling(ex -> ex.authenticationEntryPoint((request, response, authException) -> {
+    public SecurityFilterChain filterChain(HttpSecurity http, @Value("${rollout.identity.secret:}") String identitySecret,
+                                           @Value("${rollout.security.token-cache.bypass:}") List<String> tokenCacheBypass) throws Exception {
+        // With a shared secret configured, identities verified and signed by the gateway are accepted as they are
+        if (!identitySecret.isBlank()) {
+            http.addFilterBefore(new IdentityHeaderFilter(identitySecret, objectMapper), BearerTokenAuthenticationFilter.class);
+        }
+        http.csrf(AbstractHttpConfigurer::disable).cors(AbstractHttpConfigurer::disable).authorizeHttpRequests(auth -> auth.requestMatchers("/public/**", "/actuator/health", "/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html", "/api/v1/core-flags/by-sdk-key").permitAll().anyRequest().authenticated()).exceptionHandling(ex -> ex.authenticationEntryPoint((request, response, authException) -> {
 
             ApiResponse<Object> apiResponse = new ApiResponse<>("ACCESS DENIED [AUTHENTICATION REQUIRED]", false, "Please ensure you have the necessary permissions to access. For any help contact helpdesk@rollout-io.com");
 
@@ -44,9 +61,23 @@ public class SecurityConfig implements WebMvcConfigurer {
             response.setContentType("application/json");
 
             objectMapper.writeValue(response.getOutputStream(), apiResponse);
-        })).oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()));
+        })).oauth2ResourceServer(oauth2 -> oauth2.authenticationManagerResolver(authenticationManagerResolver(tokenCacheBypass)));
         return http.build();
     }
 
+    // Entries are "METHOD /path/pattern" or just a pattern; matching requests skip the verified-token cache
+    private AuthenticationManagerResolver<HttpServletRequest> authenticationManagerResolver(List<String> bypass) {
+        AuthenticationManager cached = new ProviderManager(new JwtAuthenticationProvider(jwtDecoder));
+        AuthenticationManager fresh = new ProviderManager(new JwtAuthenticationProvider(jwtDecoder.uncached()));
+        List<RequestMatcher> matchers = bypass.stream()
+                .filter(entry -> !entry.isBlank())
+                .map(entry -> entry.trim().split("\\s+", 2))
+                .map(parts -> (RequestMatcher) (parts.length == 2
+                        ? AntPathRequestMatcher.antMatcher(HttpMethod.valueOf(parts[0]), parts[1])
+                        : AntPathRequestMatcher.antMatcher(parts[0])))
+                .toList();
+        return request -> matchers.stream().anyMatch(matcher -> matcher.matches(request)) ? fresh : cached;
+    }
+
 }
 
@@ -1,20 +1,38 @@
 package com.rollout.io.server.controlplaneservice.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.rollout.io.server.controlplaneservice.entity.Flag;
 import com.rollout.io.server.controlplaneservice.helpers.ApiResponseBuilder;
 import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import com.rollout.io.server.controlplaneservice.objects.FlagImportResult;
+import com.rollout.io.server.controlplaneservice.objects.JsonPatchOperation;
+import com.rollout.io.server.controlplaneservice.objects.SdkBatchRequest;
+import com.rollout.io.server.controlplaneservice.objects.SdkPayload;
 import com.rollout.io.server.controlplaneservice.service.CoreFlagService;
+import com.rollout.io.server.controlplaneservice.service.FlagTransferService;
+import com.rollout.io.server.controlplaneservice.service.FlagValueService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -23,7 +41,12 @@ import java.util.List;
 @Validated
 public class CoreFlagController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String JSON_PATCH = "application/json-patch+json";
+
     private final CoreFlagService coreFlagService;
+    private final FlagTransferService flagTransferService;
+    private final FlagValueService flagValueService;
 
     // --- GET METHODS ---
 
@@ -55,11 +78,61 @@ public class CoreFlagController {
     }
 
     @GetMapping("/core-flags/by-sdk-key") // Public-facing endpoint for SDKs
-    @Operation(summary = "Get Core Flags by SDK Key", description = "Retrieves all core feature flags for the environment associated with the SDK key. No user authentication required.")
-    public ResponseEntity<ApiResponse<List<Flag>>> getCoreFlagsBySdkKey(
-            @RequestHeader("x-sdk-key") String sdkKey
+    @Operation(summary = "Get Core Flags by SDK Key", description = "Retrieves the core feature flags for the environment associated with the SDK key, optionally only those with any of the given tags and/or a key prefix. No user authentication required.")
+    public ResponseEntity<Object> getCoreFlagsBySdkKey(
+            @RequestHeader("x-sdk-key") String sdkKey,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(required = false) Set<String> tags,
+            @RequestParam(required = false) String prefix
+    ) {
+        return sdkResponse(coreFlagService.getCoreFlagsBySdkKey(sdkKey, tags, prefix, ifNoneMatch));
+    }
+
+    @PostMapping("/core-flags/by-sdk-key") // Public-facing batch endpoint for SDKs polling several environments
+    @Operation(summary = "Get Core Flags for several SDK Keys", description = "Retrieves the core feature flags of several environments in one request. Environments whose revision matches the one sent are returned as NOT_MODIFIED without flags; if all match, the response is 304. No user authentication required.")
+    public ResponseEntity<Object> getCoreFlagsBySdkKeys(
+            @Valid @RequestBody SdkBatchRequest batch
     ) {
-        return ApiResponseBuilder.out(HttpStatus.OK, "Core Flags fetched successfully", coreFlagService.getCoreFlagsBySdkKey(sdkKey));
+        return sdkResponse(coreFlagService.getCoreFlagsBySdkKeys(batch));
+    }
+
+    // SDK bodies skip the ApiResponse envelope so that equal environment states produce equal bytes
+    private ResponseEntity<Object> sdkResponse(SdkPayload payload) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(payload.isNotModified() ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .cacheControl(CacheControl.noCache())
+                .varyBy("x-sdk-key");
+        if (payload.getEtag() != null) {
+            response.eTag(payload.getEtag());
+        }
+        if (payload.isNotModified()) {
+            payload.getRelease().run();
+            return response.build();
+        }
+        response.contentType(MediaType.APPLICATION_JSON);
+
+        if (payload.getBody().stream().allMatch(ByteBuffer::hasArray)) {
+            byte[] body = new byte[payload.getBody().stream().mapToInt(ByteBuffer::remaining).sum()];
+            ByteBuffer target = ByteBuffer.wrap(body);
+            payload.getBody().forEach(segment -> target.put(segment.duplicate()));
+            payload.getRelease().run();
+            return response.body(body);
+        }
+
+        // Off-heap segments are written by SdkPayloadMessageConverter on this thread; the snapshot bodies they point
+        // into are released when the request completes, whether or not the write got that far
+        RequestContextHolder.currentRequestAttributes()
+                .registerDestructionCallback(SdkPayload.class.getName(), payload.getRelease(), RequestAttributes.SCOPE_REQUEST);
+        return response.body(payload);
+    }
+
+    @GetMapping("/core-flags/{flagId}/value")
+    @Operation(summary = "Get Core Flag Value", description = "Retrieves the part of a core flag's value addressed by an RFC 6901 JSON Pointer, or the whole value if no pointer is given.")
+    public ResponseEntity<ApiResponse<JsonNode>> getCoreFlagValue(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String flagId,
+            @RequestParam(required = false) String pointer
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Core Flag value fetched successfully", flagValueService.getCoreFlagValue(jwt, flagId, pointer));
     }
 
     @GetMapping("/core-flags/{flagId}")
@@ -71,6 +144,17 @@ public class CoreFlagController {
         return ApiResponseBuilder.out(HttpStatus.OK, "Core Flag fetched successfully", coreFlagService.getCoreFlag(jwt, flagId));
     }
 
+    @GetMapping(value = "/environments/{environmentId}/core-flags/export", produces = NDJSON)
+    @Operation(summary = "Export Core Flags", description = "Streams all core feature flags of an environment as NDJSON, one flag per line.")
+    public ResponseEntity<StreamingResponseBody> exportCoreFlags(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String environmentId
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(flagTransferService.exportCoreFlags(jwt, environmentId));
+    }
+
     // --- POST METHODS ---
 
     @PostMapping("/environments/{environmentId}/core-flags")
@@ -83,6 +167,16 @@ public class CoreFlagController {
         return ApiResponseBuilder.out(HttpStatus.CREATED, "Core Flag created successfully", coreFlagService.createCoreFlag(jwt, environmentId, flag));
     }
 
+    @PostMapping(value = "/environments/{environmentId}/core-flags/import", consumes = NDJSON)
+    @Operation(summary = "Import Core Flags", description = "Imports core feature flags from an NDJSON body in fixed-size batches. Existing keys are skipped.")
+    public ResponseEntity<ApiResponse<FlagImportResult>> importCoreFlags(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String environmentId,
+            HttpServletRequest request
+    ) throws IOException {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Core Flags imported successfully", flagTransferService.importCoreFlags(jwt, environmentId, request.getInputStream()));
+    }
+
     // --- PATCH METHODS ---
 
     @PatchMapping("/core-flags/{flagId}/toggle")
@@ -95,7 +189,7 @@ public class CoreFlagController {
     }
 
     @PatchMapping("/core-flags/{flagId}")
-    @Operation(summary = "Update Core Flag", description = "Updates a core feature flag's properties (value, description, etc.).")
+    @Operation(summary = "Update Core Flag", description = "Updates a core feature flag's properties (value, description, etc.). Omitted fields, including schema, keep their current values; remove a schema with DELETE /core-flags/{flagId}/schema.")
     public ResponseEntity<ApiResponse<Flag>> updateCoreFlag(
             @AuthenticationPrincipal Jwt jwt,
             @PathVariable String flagId,
@@ -104,8 +198,27 @@ public class CoreFlagController {
         return ApiResponseBuilder.out(HttpStatus.OK, "Core Flag updated successfully", coreFlagService.updateCoreFlag(jwt, flagId, flag));
     }
 
+    @PatchMapping(value = "/core-flags/{flagId}/value", consumes = {JSON_PATCH, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Patch Core Flag Value", description = "Applies an RFC 6902 JSON Patch to the value of a JSON core flag. All operations succeed or none are applied. The patched flag is returned without its value; read it with GET /core-flags/{flagId}/value.")
+    public ResponseEntity<ApiResponse<Flag>> patchCoreFlagValue(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String flagId,
+            @RequestBody List<@Valid JsonPatchOperation> operations
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Core Flag value patched successfully", flagValueService.patchCoreFlagValue(jwt, flagId, operations));
+    }
+
     // --- DELETE METHODS ---
 
+    @DeleteMapping("/core-flags/{flagId}/schema")
+    @Operation(summary = "Remove Core Flag Schema", description = "Removes the JSON Schema of a JSON core flag, so its value is no longer validated against one.")
+    public ResponseEntity<ApiResponse<Flag>> removeCoreFlagSchema(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String flagId
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Core Flag schema removed successfully", coreFlagService.removeCoreFlagSchema(jwt, flagId));
+    }
+
     @DeleteMapping("/core-flags/{flagId}")
     @Operation(summary = "Delete Core Flag", description = "Permanently deletes a core feature flag.")
     public ResponseEntity<ApiResponse<Void>> deleteCoreFlag(
@@ -1,8 +1,11 @@
 package com.rollout.io.server.controlplaneservice.controllers;
 
 import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.PromotionMode;
 import com.rollout.io.server.controlplaneservice.helpers.ApiResponseBuilder;
 import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import com.rollout.io.server.controlplaneservice.objects.PromotionResult;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentPromotionService;
 import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -25,6 +28,7 @@ import java.util.List;
 public class EnvironmentController {
 
     private final EnvironmentService environmentService;
+    private final EnvironmentPromotionService environmentPromotionService;
 
     // --- GET METHODS ---
 
@@ -71,6 +75,27 @@ public class EnvironmentController {
         return ApiResponseBuilder.out(HttpStatus.CREATED, "Environment created successfully", environmentService.createEnvironment(jwt, environment));
     }
 
+    @PostMapping("/environments/{environmentId}/promote")
+    @Operation(summary = "Promote Environment", description = "Copies all flags of this environment into the target environment. OVERWRITE replaces existing keys, MERGE only adds missing ones.")
+    public ResponseEntity<ApiResponse<PromotionResult>> promoteEnvironment(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String environmentId,
+            @RequestParam @NotBlank String targetEnvironmentId,
+            @RequestParam(defaultValue = "OVERWRITE") PromotionMode mode
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Environment promoted successfully", environmentPromotionService.promoteEnvironment(jwt, environmentId, targetEnvironmentId, mode));
+    }
+
+    @PostMapping("/environments/{environmentId}/clone")
+    @Operation(summary = "Clone Environment", description = "Creates a new environment in the same project with a copy of all flags of this environment.")
+    public ResponseEntity<ApiResponse<PromotionResult>> cloneEnvironment(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String environmentId,
+            @RequestParam @NotBlank String name
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.CREATED, "Environment cloned successfully", environmentPromotionService.cloneEnvironment(jwt, environmentId, name));
+    }
+
     // --- PATCH METHODS ---
 
     @PatchMapping("/environments/{environmentId}/name")
@@ -0,0 +1,53 @@
+package com.rollout.io.server.controlplaneservice.controllers;
+
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.helpers.ApiResponseBuilder;
+import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import com.rollout.io.server.controlplaneservice.objects.RollbackResult;
+import com.rollout.io.server.controlplaneservice.service.FlagHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Flag History", description = "Endpoints for browsing flag change history and rolling environments back")
+@Validated
+public class FlagHistoryController {
+
+    private final FlagHistoryService flagHistoryService;
+
+    @GetMapping("/environments/{environmentId}/history")
+    @Operation(summary = "Get Flag History", description = "Retrieves flag changes of an environment, newest first. Page with beforeRevision.")
+    public ResponseEntity<ApiResponse<List<FlagRevision>>> getHistory(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String environmentId,
+            @RequestParam(required = false) Long beforeRevision,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Flag history fetched successfully", flagHistoryService.getHistory(jwt, environmentId, beforeRevision, limit));
+    }
+
+    @PostMapping("/environments/{environmentId}/rollback")
+    @Operation(summary = "Rollback Environment", description = "Restores every flag of the environment to its state at the given revision or timestamp (ISO-8601).")
+    public ResponseEntity<ApiResponse<RollbackResult>> rollbackEnvironment(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String environmentId,
+            @RequestParam(required = false) Long revision,
+            @RequestParam(required = false) Instant timestamp
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Environment rolled back successfully", flagHistoryService.rollbackEnvironment(jwt, environmentId, revision, timestamp));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.rollout.io.server.controlplaneservice.controllers;
+
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import com.rollout.io.server.controlplaneservice.helpers.ApiResponseBuilder;
+import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import com.rollout.io.server.controlplaneservice.service.FlagScheduleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Flag Schedules", description = "Endpoints for scheduling flag changes at a given time")
+@Validated
+public class FlagScheduleController {
+
+    private final FlagScheduleService flagScheduleService;
+
+    @GetMapping("/core-flags/{flagId}/schedules")
+    @Operation(summary = "Get Flag Schedules", description = "Retrieves all scheduled changes of a core flag, ordered by fire time.")
+    public ResponseEntity<ApiResponse<List<FlagSchedule>>> getSchedules(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String flagId
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Schedules fetched successfully", flagScheduleService.getSchedules(jwt, flagId));
+    }
+
+    @PostMapping("/core-flags/{flagId}/schedules")
+    @Operation(summary = "Schedule Flag Change", description = "Schedules an ENABLE, DISABLE or SET_VALUE change of a core flag at fireAt.")
+    public ResponseEntity<ApiResponse<FlagSchedule>> createSchedule(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String flagId,
+            @RequestBody FlagSchedule schedule
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.CREATED, "Schedule created successfully", flagScheduleService.createSchedule(jwt, flagId, schedule));
+    }
+
+    @DeleteMapping("/schedules/{scheduleId}")
+    @Operation(summary = "Cancel Flag Schedule", description = "Cancels a scheduled change that has not fired yet.")
+    public ResponseEntity<ApiResponse<FlagSchedule>> cancelSchedule(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String scheduleId
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Schedule cancelled successfully", flagScheduleService.cancelSchedule(jwt, scheduleId));
+    }
+
+}
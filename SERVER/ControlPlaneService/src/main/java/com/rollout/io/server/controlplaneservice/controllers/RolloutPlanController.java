@@ -0,0 +1,57 @@
+package com.rollout.io.server.controlplaneservice.controllers;
+
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.helpers.ApiResponseBuilder;
+import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import com.rollout.io.server.controlplaneservice.service.RolloutPlanService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Rollout Plans", description = "Endpoints for progressive rollouts with automatic rollback")
+@Validated
+public class RolloutPlanController {
+
+    private final RolloutPlanService rolloutPlanService;
+
+    @GetMapping("/core-flags/{flagId}/rollout-plans")
+    @Operation(summary = "Get Rollout Plans", description = "Retrieves all rollout plans of a core flag, newest first.")
+    public ResponseEntity<ApiResponse<List<RolloutPlan>>> getPlans(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String flagId
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Rollout plans fetched successfully", rolloutPlanService.getPlans(jwt, flagId));
+    }
+
+    @PostMapping("/core-flags/{flagId}/rollout-plans")
+    @Operation(summary = "Create Rollout Plan", description = "Starts ramping the flag's rollout percentage through the given stages. At least one guard is required; {flagKey}, {flagId} and {environmentId} in its query are replaced with the flag's values. Breaching a guard rolls the flag back automatically.")
+    public ResponseEntity<ApiResponse<RolloutPlan>> createPlan(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String flagId,
+            @RequestBody RolloutPlan plan
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.CREATED, "Rollout plan created successfully", rolloutPlanService.createPlan(jwt, flagId, plan));
+    }
+
+    @DeleteMapping("/rollout-plans/{planId}")
+    @Operation(summary = "Cancel Rollout Plan", description = "Stops an active rollout plan at its current stage.")
+    public ResponseEntity<ApiResponse<RolloutPlan>> cancelPlan(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable @NotBlank String planId
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Rollout plan cancelled successfully", rolloutPlanService.cancelPlan(jwt, planId));
+    }
+
+}
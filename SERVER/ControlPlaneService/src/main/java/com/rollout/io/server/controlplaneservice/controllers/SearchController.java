@@ -0,0 +1,42 @@
+package com.rollout.io.server.controlplaneservice.controllers;
+
+import com.rollout.io.server.controlplaneservice.entity.SearchResultType;
+import com.rollout.io.server.controlplaneservice.helpers.ApiResponseBuilder;
+import com.rollout.io.server.controlplaneservice.objects.ApiResponse;
+import com.rollout.io.server.controlplaneservice.objects.SearchResults;
+import com.rollout.io.server.controlplaneservice.service.SearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Search", description = "Endpoints for searching projects, environments and flags")
+@Validated
+public class SearchController {
+
+    private final SearchService searchService;
+
+    @GetMapping("/search")
+    @Operation(summary = "Search", description = "Searches projects, environments and flags by name within the user's scope. Results are ranked exact, prefix, word and then substring matches.")
+    public ResponseEntity<ApiResponse<SearchResults>> search(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam @NotBlank String query,
+            @RequestParam(required = false) Set<SearchResultType> types,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ApiResponseBuilder.out(HttpStatus.OK, "Search completed successfully", searchService.search(jwt, query, types, page, size));
+    }
+
+}
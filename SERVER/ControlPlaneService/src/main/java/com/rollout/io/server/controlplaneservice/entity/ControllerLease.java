@@ -0,0 +1,26 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "controller_leases")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ControllerLease {
+
+    @Id
+    private String id; // lease name
+
+    private String owner;
+
+    private Instant leaseUntil;
+
+}
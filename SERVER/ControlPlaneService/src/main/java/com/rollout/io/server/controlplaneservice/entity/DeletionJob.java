@@ -0,0 +1,45 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "deletion_jobs")
+@CompoundIndex(name = "status_lease", def = "{'status': 1, 'leaseUntil': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletionJob {
+
+    @Id
+    private String id;
+
+    private DeletionTargetType targetType;
+
+    private String targetId; // project or environment id, removed right after the job is written
+
+    private DeletionJobStatus status;
+
+    private long deletedEnvironments;
+
+    private long deletedFlags;
+
+    // Lease held by the replica currently working the job, so a crashed worker's job is picked up again
+    private String leaseOwner;
+
+    private Instant leaseUntil;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private Instant completedAt;
+
+}
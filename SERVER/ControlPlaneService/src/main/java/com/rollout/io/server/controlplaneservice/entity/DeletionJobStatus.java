@@ -0,0 +1,8 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum DeletionJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    CANCELLED // the target was never deleted
+}
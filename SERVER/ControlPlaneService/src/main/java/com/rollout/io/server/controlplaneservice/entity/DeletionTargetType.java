@@ -0,0 +1,6 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum DeletionTargetType {
+    PROJECT,
+    ENVIRONMENT
+}
@@ -1,17 +1,22 @@
 package com.rollout.io.server.controlplaneservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.List;
 
 @Document(collection = "environments")
-@CompoundIndex(name = "project_env_unique",
-        def = "{'projectId': 1, 'name': 1}",
-        unique = true)
+@CompoundIndexes({
+        @CompoundIndex(name = "project_env_unique", def = "{'projectId': 1, 'name': 1}", unique = true),
+        @CompoundIndex(name = "user_env_search_grams", def = "{'createdByUid': 1, 'searchGrams': 1}"),
+        @CompoundIndex(name = "user_env_search_name", def = "{'createdByUid': 1, 'searchName': 1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -33,4 +38,12 @@ public class Environment {
 
     private Instant createdAt;
 
+    private Long revision; // raised on every flag change in the environment, used to validate SDK snapshots
+
+    @JsonIgnore
+    private String searchName;
+
+    @JsonIgnore
+    private List<String> searchGrams;
+
 }
@@ -1,22 +1,32 @@
 package com.rollout.io.server.controlplaneservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
 
 @Document(collection = "flags")
-@CompoundIndex(
-        name = "env_flag_unique",
-        def = "{'environmentId': 1, 'key': 1}",
-        unique = true
-)
+@CompoundIndexes({
+        @CompoundIndex(name = "env_flag_unique", def = "{'environmentId': 1, 'key': 1}", unique = true),
+        @CompoundIndex(name = "user_flag_search_grams", def = "{'createdByUid': 1, 'searchGrams': 1}"),
+        @CompoundIndex(name = "user_flag_search_name", def = "{'createdByUid': 1, 'searchName': 1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -43,6 +53,29 @@ public class Flag {
 
     private Object value;
 
+    // Set instead of value when a large JSON value lives in flag_value_blobs
+    @JsonIgnore
+    private String valueRef;
+
+    // Loads the blob behind valueRef on the first getValue(), so reads that never look at the value (checkpoints,
+    // history, header lookups) neither fetch nor decode it
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Supplier<Object> deferredValue;
+
+    private Object schema; // JSON Schema the value must satisfy, JSON flags only
+
+    @JsonIgnore
+    private String schemaHash; // JsonSchemaCache key of the schema, reset whenever the schema changes
+
+    private Integer rolloutPercentage; // share of traffic served the flag, null means 100
+
+    private List<String> tags; // lets SDKs fetch only the flags of the services they run in
+
     // Only used if category = DEPENDENT
     private RuleNode dependency;
 
@@ -54,4 +87,29 @@ public class Flag {
 
     private Instant updatedAt;
 
+    @JsonIgnore
+    private String searchName;
+
+    @JsonIgnore
+    private List<String> searchGrams;
+
+    public Object getValue() {
+        if (value == null && deferredValue != null) {
+            value = deferredValue.get();
+            deferredValue = null;
+        }
+        return value;
+    }
+
+    // A new value no longer matches the blob, so the reference goes with the old one
+    public void setValue(Object value) {
+        this.value = value;
+        this.deferredValue = null;
+        this.valueRef = null;
+    }
+
+    public void deferValue(Supplier<Object> loader) {
+        this.deferredValue = loader;
+    }
+
 }
\ No newline at end of file
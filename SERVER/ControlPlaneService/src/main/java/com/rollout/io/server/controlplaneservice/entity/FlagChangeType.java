@@ -0,0 +1,10 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum FlagChangeType {
+    CREATE,
+    UPDATE,
+    PATCH,
+    TOGGLE,
+    DELETE,
+    RESTORE
+}
@@ -0,0 +1,35 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "flag_checkpoints")
+@CompoundIndex(name = "env_revision", def = "{'environmentId': 1, 'revision': -1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagCheckpoint {
+
+    @Id
+    private String id;
+
+    private String environmentId;
+
+    // Every change with a higher revision may be missing from the checkpoint and is replayed on top of it
+    private long revision;
+
+    private long flagCount;
+
+    private boolean complete; // set once all entries are written
+
+    private Instant createdAt;
+
+}
@@ -0,0 +1,26 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "flag_checkpoint_entries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagCheckpointEntry {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String checkpointId;
+
+    private Flag flag;
+
+}
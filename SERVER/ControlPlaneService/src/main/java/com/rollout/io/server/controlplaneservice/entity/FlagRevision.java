@@ -0,0 +1,49 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Document(collection = "flag_history")
+@CompoundIndexes({
+        @CompoundIndex(name = "env_revision", def = "{'environmentId': 1, 'revision': 1}"),
+        @CompoundIndex(name = "env_recorded_at", def = "{'environmentId': 1, 'recordedAt': -1}")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagRevision {
+
+    @Id
+    private String id;
+
+    private String environmentId;
+
+    private String flagId;
+
+    private String key;
+
+    // Next value of the environment's revision sequence, so entries are strictly ordered across replicas
+    private long revision;
+
+    private FlagChangeType changeType;
+
+    private Flag flag; // full state after the change, null for DELETE; for PATCH without the value
+
+    private List<Map<String, Object>> patch; // RFC 6902 operations a PATCH applied to the previous value
+
+    private String changedByUid;
+
+    private Instant recordedAt;
+
+}
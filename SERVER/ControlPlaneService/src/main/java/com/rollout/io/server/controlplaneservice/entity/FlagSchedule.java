@@ -0,0 +1,52 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "flag_schedules")
+@CompoundIndex(name = "status_fire_at", def = "{'status': 1, 'fireAt': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagSchedule {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String flagId;
+
+    @Indexed
+    private String environmentId;
+
+    private ScheduledAction action;
+
+    private Object value; // Only used if action = SET_VALUE
+
+    private Instant fireAt;
+
+    private ScheduleStatus status;
+
+    // Held by the replica applying the change; an expired FIRING lease is picked up again
+    private String leaseOwner;
+
+    private Instant leaseUntil;
+
+    private String failureReason;
+
+    private String createdByUid;
+
+    private Instant createdAt;
+
+    private Instant firedAt;
+
+}
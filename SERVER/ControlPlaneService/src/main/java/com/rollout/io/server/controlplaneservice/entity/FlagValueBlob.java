@@ -0,0 +1,30 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document(collection = "flag_value_blobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagValueBlob {
+
+    @Id
+    private String id; // SHA-256 of the uncompressed JSON
+
+    private byte[] data; // gzip-compressed JSON
+
+    private int size; // uncompressed bytes
+
+    private Instant createdAt;
+
+    private Instant lastReferencedAt; // bumped on every write that points at the blob, guards the sweeper
+
+}
@@ -0,0 +1,12 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public enum JsonPatchOp {
+    @JsonProperty("add") ADD,
+    @JsonProperty("remove") REMOVE,
+    @JsonProperty("replace") REPLACE,
+    @JsonProperty("move") MOVE,
+    @JsonProperty("copy") COPY,
+    @JsonProperty("test") TEST
+}
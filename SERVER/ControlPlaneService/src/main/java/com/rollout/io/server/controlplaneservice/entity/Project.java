@@ -1,19 +1,22 @@
 package com.rollout.io.server.controlplaneservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.List;
 
 @Document(collection = "projects")
 @Data
-@CompoundIndex(
-        name = "user_project_unique",
-        def = "{'createdByUid': 1, 'name': 1}",
-        unique = true
-)
+@CompoundIndexes({
+        @CompoundIndex(name = "user_project_unique", def = "{'createdByUid': 1, 'name': 1}", unique = true),
+        @CompoundIndex(name = "user_project_search_grams", def = "{'createdByUid': 1, 'searchGrams': 1}"),
+        @CompoundIndex(name = "user_project_search_name", def = "{'createdByUid': 1, 'searchName': 1}")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,5 +33,12 @@ public class Project {
 
     private Instant createdAt;
 
+    // Normalized name and its trigrams, maintained by SearchIndexer
+    @JsonIgnore
+    private String searchName;
+
+    @JsonIgnore
+    private List<String> searchGrams;
+
 }
 
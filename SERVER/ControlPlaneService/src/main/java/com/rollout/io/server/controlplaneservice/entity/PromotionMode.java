@@ -0,0 +1,6 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum PromotionMode {
+    OVERWRITE, // source wins for every key
+    MERGE      // only keys missing in the target are copied
+}
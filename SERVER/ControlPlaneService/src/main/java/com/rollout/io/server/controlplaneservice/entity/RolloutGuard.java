@@ -0,0 +1,19 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RolloutGuard {
+
+    private String name;
+
+    private String query; // PromQL returning a single value
+
+    private Double maxValue; // breached when the query result is above this
+}
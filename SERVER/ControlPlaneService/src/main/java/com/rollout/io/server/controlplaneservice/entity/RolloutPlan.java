@@ -0,0 +1,52 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+@Document(collection = "rollout_plans")
+@CompoundIndex(name = "status_next_step", def = "{'status': 1, 'nextStepAt': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RolloutPlan {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String flagId;
+
+    @Indexed
+    private String environmentId;
+
+    private List<RolloutStage> stages;
+
+    private List<RolloutGuard> guards; // at least one, queries scoped to the plan's flag at creation
+
+    private Integer currentStage; // -1 until the first stage is applied
+
+    private Integer rollbackPercentage; // exposure applied when a guard is breached
+
+    private RolloutPlanStatus status;
+
+    private Instant nextStepAt;
+
+    private String statusReason;
+
+    private String createdByUid;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+}
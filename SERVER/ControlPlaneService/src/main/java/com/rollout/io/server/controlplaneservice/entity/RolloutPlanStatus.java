@@ -0,0 +1,8 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum RolloutPlanStatus {
+    ACTIVE,
+    COMPLETED,
+    ROLLED_BACK,
+    CANCELLED
+}
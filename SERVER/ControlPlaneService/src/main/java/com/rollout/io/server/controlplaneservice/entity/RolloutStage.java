@@ -0,0 +1,17 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RolloutStage {
+
+    private Integer percentage;
+
+    private Long holdSeconds; // time to stay at this stage before the next step
+}
@@ -0,0 +1,9 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum ScheduleStatus {
+    PENDING,
+    FIRING,
+    FIRED,
+    CANCELLED,
+    FAILED
+}
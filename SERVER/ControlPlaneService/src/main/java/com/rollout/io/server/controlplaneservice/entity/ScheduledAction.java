@@ -0,0 +1,7 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum ScheduledAction {
+    ENABLE,
+    DISABLE,
+    SET_VALUE
+}
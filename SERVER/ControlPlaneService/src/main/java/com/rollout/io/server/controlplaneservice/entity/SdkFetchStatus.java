@@ -0,0 +1,7 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum SdkFetchStatus {
+    OK,           // flags included
+    NOT_MODIFIED, // caller's revision is current, flags omitted
+    NOT_FOUND     // SDK key does not resolve to an environment
+}
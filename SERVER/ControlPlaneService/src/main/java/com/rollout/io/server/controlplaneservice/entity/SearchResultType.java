@@ -0,0 +1,7 @@
+package com.rollout.io.server.controlplaneservice.entity;
+
+public enum SearchResultType {
+    PROJECT,
+    ENVIRONMENT,
+    FLAG
+}
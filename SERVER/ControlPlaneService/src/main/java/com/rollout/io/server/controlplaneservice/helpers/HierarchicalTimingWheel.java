@@ -0,0 +1,113 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.rollout.io.server.controlplaneservice.objects.Helper;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/*
+ * Hierarchical timing wheel (Varghese & Lauck). Inserting and expiring are O(1) per entry; each tick only
+ * touches one bucket, and coarser levels cascade into finer ones when the finer wheel wraps around.
+ * Not thread safe: it is meant to be driven by a single ticker thread.
+ */
+@Helper
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final ArrayDeque<Entry<T>>[] buckets;
+
+    private long currentTime; // start of the current tick, always a multiple of tickMs
+    private HierarchicalTimingWheel<T> overflow;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.currentTime = startMs - (startMs % tickMs);
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    // Returns false if the entry is already due; the caller should run it right away
+    public boolean add(long expirationMs, T item) {
+        // Rounded up to the next tick, so entries fire at most one tick late and never early
+        return add(new Entry<>(expirationMs + tickMs - 1, item));
+    }
+
+    public int size() {
+        return size + (overflow == null ? 0 : overflow.size());
+    }
+
+    // Moves the wheel forward to nowMs, handing every entry that became due to the consumer
+    public void advance(long nowMs, Consumer<T> expired) {
+        while (currentTime + tickMs <= nowMs) {
+            currentTime += tickMs;
+
+            if (overflow != null) {
+                overflow.cascade(currentTime, entry -> {
+                    if (!add(entry)) {
+                        expired.accept(entry.item);
+                    }
+                });
+            }
+
+            ArrayDeque<Entry<T>> bucket = buckets[bucketIndex(currentTime)];
+            Entry<T> entry;
+            while ((entry = bucket.poll()) != null) {
+                size--;
+                expired.accept(entry.item);
+            }
+        }
+    }
+
+    private boolean add(Entry<T> entry) {
+        if (entry.expirationMs < currentTime + tickMs) {
+            return false;
+        }
+        if (entry.expirationMs < currentTime + interval) {
+            buckets[bucketIndex(entry.expirationMs)].add(entry);
+            size++;
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new HierarchicalTimingWheel<>(interval, wheelSize, currentTime);
+        }
+        return overflow.add(entry);
+    }
+
+    // Called by the finer wheel: releases the bucket(s) that start at or before its new current time
+    private void cascade(long finerTime, Consumer<Entry<T>> release) {
+        while (currentTime + tickMs <= finerTime) {
+            currentTime += tickMs;
+
+            if (overflow != null) {
+                overflow.cascade(currentTime, entry -> {
+                    if (!add(entry)) {
+                        release.accept(entry);
+                    }
+                });
+            }
+
+            ArrayDeque<Entry<T>> bucket = buckets[bucketIndex(currentTime)];
+            Entry<T> entry;
+            while ((entry = bucket.poll()) != null) {
+                size--;
+                release.accept(entry);
+            }
+        }
+    }
+
+    private int bucketIndex(long timeMs) {
+        return (int) ((timeMs / tickMs) % wheelSize);
+    }
+
+    private record Entry<T>(long expirationMs, T item) {
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.objects.Helper;
+import com.rollout.io.server.controlplaneservice.objects.JsonPatchOperation;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 6902 JSON Patch over Jackson trees, plus the mapping of simple patches onto Mongo field paths
+@Helper
+public class JsonPatch {
+
+    private JsonPatch() {
+        // Private constructor to hide the implicit public one in utility classes
+    }
+
+    // Applies all operations in order to a deep copy of the document; the input is left untouched
+    public static JsonNode apply(JsonNode document, List<JsonPatchOperation> operations) {
+        JsonNode root = document.deepCopy();
+        for (JsonPatchOperation operation : operations) {
+            JsonPointer path = pointer(operation.getPath());
+            switch (operation.getOp()) {
+                case ADD -> root = add(root, path, requireValue(operation));
+                case REMOVE -> root = remove(root, path);
+                case REPLACE -> {
+                    if (!path.matches()) {
+                        root = remove(root, path);
+                    }
+                    root = add(root, path, requireValue(operation));
+                }
+                case MOVE -> {
+                    JsonPointer from = pointer(operation.getFrom());
+                    if (operation.getPath().startsWith(operation.getFrom() + "/")) {
+                        throw new RolloutError("Cannot move '" + operation.getFrom() + "' into one of its children", HttpStatus.BAD_REQUEST);
+                    }
+                    JsonNode value = existing(root, from);
+                    root = remove(root, from);
+                    root = add(root, path, value);
+                }
+                case COPY -> root = add(root, path, existing(root, pointer(operation.getFrom())).deepCopy());
+                case TEST -> {
+                    if (!existing(root, path).equals(requireValue(operation))) {
+                        throw new RolloutError("Test failed at '" + operation.getPath() + "'", HttpStatus.CONFLICT);
+                    }
+                }
+            }
+        }
+        return root;
+    }
+
+    public static JsonPointer pointer(String path) {
+        if (path == null) {
+            throw new RolloutError("JSON Patch operation is missing a path", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return JsonPointer.compile(path);
+        } catch (IllegalArgumentException e) {
+            throw new RolloutError("Invalid JSON Pointer '" + path + "'", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Unescaped reference tokens of a pointer, e.g. "/a~1b/0" -> ["a/b", "0"]
+    public static List<String> segments(JsonPointer pointer) {
+        List<String> segments = new ArrayList<>();
+        for (JsonPointer current = pointer; !current.matches(); current = current.tail()) {
+            segments.add(current.getMatchingProperty());
+        }
+        return segments;
+    }
+
+    // Dotted Mongo path for the pointer below the given field, or null if a segment cannot be expressed in one
+    public static String mongoPath(String field, JsonPointer pointer) {
+        StringBuilder path = new StringBuilder(field);
+        for (String segment : segments(pointer)) {
+            if (segment.isEmpty() || segment.equals("-") || segment.contains(".") || segment.startsWith("$")) {
+                return null;
+            }
+            path.append('.').append(segment);
+        }
+        return path.toString();
+    }
+
+    public static boolean isArrayIndex(String segment) {
+        return !segment.isEmpty() && segment.chars().allMatch(Character::isDigit)
+                && (segment.length() == 1 || segment.charAt(0) != '0');
+    }
+
+    private static JsonNode requireValue(JsonPatchOperation operation) {
+        if (operation.getValue() == null) {
+            throw new RolloutError("JSON Patch '" + operation.getPath() + "' is missing a value", HttpStatus.BAD_REQUEST);
+        }
+        return operation.getValue();
+    }
+
+    private static JsonNode existing(JsonNode root, JsonPointer path) {
+        JsonNode node = root.at(path);
+        if (node.isMissingNode()) {
+            throw new RolloutError("Path '" + path + "' does not exist", HttpStatus.BAD_REQUEST);
+        }
+        return node;
+    }
+
+    private static JsonNode add(JsonNode root, JsonPointer path, JsonNode value) {
+        if (path.matches()) {
+            return value;
+        }
+        JsonNode parent = existing(root, path.head());
+        String last = path.last().getMatchingProperty();
+
+        if (parent instanceof ObjectNode object) {
+            object.set(last, value);
+        } else if (parent instanceof ArrayNode array) {
+            if (last.equals("-")) {
+                array.add(value);
+            } else {
+                array.insert(index(array, last, array.size()), value);
+            }
+        } else {
+            throw new RolloutError("Parent of '" + path + "' is not an object or array", HttpStatus.BAD_REQUEST);
+        }
+        return root;
+    }
+
+    private static JsonNode remove(JsonNode root, JsonPointer path) {
+        existing(root, path);
+        if (path.matches()) {
+            throw new RolloutError("The document root cannot be removed", HttpStatus.BAD_REQUEST);
+        }
+        JsonNode parent = root.at(path.head());
+        String last = path.last().getMatchingProperty();
+
+        if (parent instanceof ObjectNode object) {
+            object.remove(last);
+        } else if (parent instanceof ArrayNode array) {
+            array.remove(index(array, last, array.size() - 1));
+        }
+        return root;
+    }
+
+    private static int index(ArrayNode array, String segment, int max) {
+        if (!isArrayIndex(segment)) {
+            throw new RolloutError("'" + segment + "' is not a valid array index", HttpStatus.BAD_REQUEST);
+        }
+        int index;
+        try {
+            index = Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            index = Integer.MAX_VALUE;
+        }
+        if (index > max) {
+            throw new RolloutError("Array index " + segment + " is out of bounds", HttpStatus.BAD_REQUEST);
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,426 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Compiled form of the JSON Schema validation vocabulary used by flag schemas (no $ref or remote documents).
+// Compiling resolves every keyword and regex once; validation is then a single walk over the value.
+public class JsonSchema {
+
+    private static final Set<String> ANNOTATIONS = Set.of(
+            "$schema", "$id", "$comment", "title", "description", "default", "examples", "deprecated", "readOnly", "writeOnly");
+
+    private enum Type { NULL, BOOLEAN, OBJECT, ARRAY, NUMBER, INTEGER, STRING }
+
+    private final boolean alwaysValid;
+    private final boolean neverValid;
+
+    private EnumSet<Type> types;
+    private List<Object> enumValues;
+    private Object constValue;
+    private boolean hasConst;
+    private String enumJson; // as written in the schema, since normalized numbers print as 1E+1
+    private String constJson;
+
+    private Map<String, JsonSchema> properties;
+    private List<String> required;
+    private JsonSchema additionalProperties;
+    private Integer minProperties;
+    private Integer maxProperties;
+
+    private JsonSchema items;
+    private Integer minItems;
+    private Integer maxItems;
+    private boolean uniqueItems;
+
+    private BigDecimal minimum;
+    private BigDecimal maximum;
+    private BigDecimal exclusiveMinimum;
+    private BigDecimal exclusiveMaximum;
+    private BigDecimal multipleOf;
+    private boolean hasNumericBounds;
+
+    private Integer minLength;
+    private Integer maxLength;
+    private Pattern pattern;
+
+    private List<JsonSchema> allOf;
+    private List<JsonSchema> anyOf;
+    private List<JsonSchema> oneOf;
+    private JsonSchema not;
+
+    private JsonSchema(boolean alwaysValid, boolean neverValid) {
+        this.alwaysValid = alwaysValid;
+        this.neverValid = neverValid;
+    }
+
+    public static JsonSchema compile(JsonNode schema, ObjectMapper objectMapper) {
+        return compile(schema, objectMapper, "#");
+    }
+
+    // Returns up to maxErrors messages, each prefixed with the JSON Pointer of the offending value
+    public List<String> validate(Object value, int maxErrors) {
+        List<String> errors = new ArrayList<>();
+        validate(value, Location.ROOT, errors, maxErrors);
+        return errors;
+    }
+
+    // Pointer to the value being checked, only rendered to a string when an error is reported
+    private record Location(Location parent, String property, int index) {
+
+        static final Location ROOT = new Location(null, null, -1);
+
+        Location child(String name) {
+            return new Location(this, name, -1);
+        }
+
+        Location child(int position) {
+            return new Location(this, null, position);
+        }
+
+        @Override
+        public String toString() {
+            if (parent == null) {
+                return "";
+            }
+            return parent + "/" + (property != null ? property.replace("~", "~0").replace("/", "~1") : index);
+        }
+    }
+
+    private static JsonSchema compile(JsonNode node, ObjectMapper objectMapper, String at) {
+        if (node.isBoolean()) {
+            return new JsonSchema(node.booleanValue(), !node.booleanValue());
+        }
+        if (!node.isObject()) {
+            throw invalid(at, "a schema must be an object or a boolean");
+        }
+
+        JsonSchema schema = new JsonSchema(false, false);
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            String keyword = entry.getKey();
+            JsonNode value = entry.getValue();
+            String path = at + "/" + keyword;
+
+            switch (keyword) {
+                case "type" -> schema.types = types(value, path);
+                case "enum" -> {
+                    if (!value.isArray()) {
+                        throw invalid(path, "must be an array");
+                    }
+                    schema.enumValues = new ArrayList<>();
+                    schema.enumJson = value.toString();
+                    value.forEach(option -> schema.enumValues.add(normalize(objectMapper.convertValue(option, Object.class))));
+                }
+                case "const" -> {
+                    schema.hasConst = true;
+                    schema.constValue = normalize(objectMapper.convertValue(value, Object.class));
+                    schema.constJson = value.toString();
+                }
+                case "properties" -> {
+                    if (!value.isObject()) {
+                        throw invalid(path, "must be an object");
+                    }
+                    schema.properties = new LinkedHashMap<>();
+                    value.fields().forEachRemaining(property ->
+                            schema.properties.put(property.getKey(), compile(property.getValue(), objectMapper, path + "/" + property.getKey())));
+                }
+                case "required" -> {
+                    if (!value.isArray()) {
+                        throw invalid(path, "must be an array of strings");
+                    }
+                    schema.required = new ArrayList<>();
+                    value.forEach(name -> schema.required.add(name.asText()));
+                }
+                case "additionalProperties" -> schema.additionalProperties = compile(value, objectMapper, path);
+                case "minProperties" -> schema.minProperties = count(value, path);
+                case "maxProperties" -> schema.maxProperties = count(value, path);
+                case "items" -> schema.items = compile(value, objectMapper, path);
+                case "minItems" -> schema.minItems = count(value, path);
+                case "maxItems" -> schema.maxItems = count(value, path);
+                case "uniqueItems" -> schema.uniqueItems = value.asBoolean();
+                case "minimum" -> schema.minimum = number(value, path);
+                case "maximum" -> schema.maximum = number(value, path);
+                case "exclusiveMinimum" -> schema.exclusiveMinimum = number(value, path);
+                case "exclusiveMaximum" -> schema.exclusiveMaximum = number(value, path);
+                case "multipleOf" -> {
+                    schema.multipleOf = number(value, path);
+                    if (schema.multipleOf.signum() <= 0) {
+                        throw invalid(path, "must be greater than 0");
+                    }
+                }
+                case "minLength" -> schema.minLength = count(value, path);
+                case "maxLength" -> schema.maxLength = count(value, path);
+                case "pattern" -> {
+                    try {
+                        schema.pattern = Pattern.compile(value.asText());
+                    } catch (PatternSyntaxException e) {
+                        throw invalid(path, "is not a valid regular expression");
+                    }
+                }
+                case "allOf" -> schema.allOf = schemas(value, objectMapper, path);
+                case "anyOf" -> schema.anyOf = schemas(value, objectMapper, path);
+                case "oneOf" -> schema.oneOf = schemas(value, objectMapper, path);
+                case "not" -> schema.not = compile(value, objectMapper, path);
+                default -> {
+                    if (!ANNOTATIONS.contains(keyword)) {
+                        throw invalid(path, "keyword is not supported");
+                    }
+                }
+            }
+        }
+        schema.hasNumericBounds = schema.minimum != null || schema.maximum != null || schema.exclusiveMinimum != null
+                || schema.exclusiveMaximum != null || schema.multipleOf != null;
+        return schema;
+    }
+
+    private void validate(Object value, Location path, List<String> errors, int maxErrors) {
+        if (errors.size() >= maxErrors || alwaysValid) {
+            return;
+        }
+        if (neverValid) {
+            errors.add(path + ": no value is allowed here");
+            return;
+        }
+
+        if (types != null && !matchesType(value)) {
+            errors.add(path + ": expected " + types.toString().toLowerCase(Locale.ROOT));
+            return; // the remaining keywords would only repeat the mismatch
+        }
+        if (enumValues != null && !enumValues.contains(value instanceof String ? value : normalize(value))) {
+            errors.add(path + ": must be one of " + enumJson);
+        }
+        if (hasConst && !Objects.equals(constValue, normalize(value))) {
+            errors.add(path + ": must be " + constJson);
+        }
+
+        if (value instanceof Map<?, ?> object) {
+            validateObject(object, path, errors, maxErrors);
+        } else if (value instanceof List<?> array) {
+            validateArray(array, path, errors, maxErrors);
+        } else if (value instanceof Number number && hasNumericBounds) {
+            validateNumber(number, path, errors);
+        } else if (value instanceof String string) {
+            validateString(string, path, errors);
+        }
+
+        if (allOf != null) {
+            allOf.forEach(schema -> schema.validate(value, path, errors, maxErrors));
+        }
+        if (anyOf != null && anyOf.stream().noneMatch(schema -> schema.accepts(value))) {
+            errors.add(path + ": must match at least one schema in anyOf");
+        }
+        if (oneOf != null && oneOf.stream().filter(schema -> schema.accepts(value)).count() != 1) {
+            errors.add(path + ": must match exactly one schema in oneOf");
+        }
+        if (not != null && not.accepts(value)) {
+            errors.add(path + ": must not match the schema in not");
+        }
+    }
+
+    private boolean accepts(Object value) {
+        return validate(value, 1).isEmpty();
+    }
+
+    private void validateObject(Map<?, ?> object, Location path, List<String> errors, int maxErrors) {
+        if (required != null) {
+            for (String name : required) {
+                if (!object.containsKey(name)) {
+                    errors.add(path + ": missing required property '" + name + "'");
+                }
+            }
+        }
+        if (minProperties != null && object.size() < minProperties) {
+            errors.add(path + ": must have at least " + minProperties + " properties");
+        }
+        if (maxProperties != null && object.size() > maxProperties) {
+            errors.add(path + ": must have at most " + maxProperties + " properties");
+        }
+        for (Map.Entry<?, ?> entry : object.entrySet()) {
+            String name = String.valueOf(entry.getKey());
+            JsonSchema schema = properties != null ? properties.get(name) : null;
+            if (schema == null) {
+                schema = additionalProperties;
+            }
+            if (schema != null) {
+                schema.validate(entry.getValue(), path.child(name), errors, maxErrors);
+            }
+        }
+    }
+
+    private void validateArray(List<?> array, Location path, List<String> errors, int maxErrors) {
+        if (minItems != null && array.size() < minItems) {
+            errors.add(path + ": must have at least " + minItems + " items");
+        }
+        if (maxItems != null && array.size() > maxItems) {
+            errors.add(path + ": must have at most " + maxItems + " items");
+        }
+        if (uniqueItems) {
+            Set<Object> seen = new HashSet<>();
+            for (Object item : array) {
+                if (!seen.add(normalize(item))) {
+                    errors.add(path + ": items must be unique");
+                    break;
+                }
+            }
+        }
+        if (items != null) {
+            for (int i = 0; i < array.size() && errors.size() < maxErrors; i++) {
+                items.validate(array.get(i), path.child(i), errors, maxErrors);
+            }
+        }
+    }
+
+    private void validateNumber(Number number, Location path, List<String> errors) {
+        BigDecimal value = decimal(number);
+        if (minimum != null && value.compareTo(minimum) < 0) {
+            errors.add(path + ": must be >= " + minimum);
+        }
+        if (maximum != null && value.compareTo(maximum) > 0) {
+            errors.add(path + ": must be <= " + maximum);
+        }
+        if (exclusiveMinimum != null && value.compareTo(exclusiveMinimum) <= 0) {
+            errors.add(path + ": must be > " + exclusiveMinimum);
+        }
+        if (exclusiveMaximum != null && value.compareTo(exclusiveMaximum) >= 0) {
+            errors.add(path + ": must be < " + exclusiveMaximum);
+        }
+        if (multipleOf != null && value.remainder(multipleOf).signum() != 0) {
+            errors.add(path + ": must be a multiple of " + multipleOf);
+        }
+    }
+
+    private void validateString(String string, Location path, List<String> errors) {
+        int length = string.codePointCount(0, string.length());
+        if (minLength != null && length < minLength) {
+            errors.add(path + ": must be at least " + minLength + " characters");
+        }
+        if (maxLength != null && length > maxLength) {
+            errors.add(path + ": must be at most " + maxLength + " characters");
+        }
+        if (pattern != null && !pattern.matcher(string).find()) {
+            errors.add(path + ": must match " + pattern.pattern());
+        }
+    }
+
+    private boolean matchesType(Object value) {
+        for (Type type : types) {
+            boolean matches = switch (type) {
+                case NULL -> value == null;
+                case BOOLEAN -> value instanceof Boolean;
+                case OBJECT -> value instanceof Map;
+                case ARRAY -> value instanceof List;
+                case NUMBER -> value instanceof Number;
+                case INTEGER -> value instanceof Number number && isIntegral(number);
+                case STRING -> value instanceof String;
+            };
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIntegral(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte || number instanceof BigInteger) {
+            return true;
+        }
+        BigDecimal decimal = decimal(number);
+        return decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static BigDecimal decimal(Number number) {
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (number instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    // JSON does not distinguish 1 from 1.0, so numbers compare by value in enum, const and uniqueItems
+    private static Object normalize(Object value) {
+        if (value instanceof Number number) {
+            return decimal(number).stripTrailingZeros();
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> normalized = new LinkedHashMap<>();
+            map.forEach((key, item) -> normalized.put(key, normalize(item)));
+            return normalized;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(JsonSchema::normalize).toList();
+        }
+        return value;
+    }
+
+    private static EnumSet<Type> types(JsonNode value, String path) {
+        EnumSet<Type> types = EnumSet.noneOf(Type.class);
+        List<JsonNode> names = new ArrayList<>();
+        if (value.isArray()) {
+            value.forEach(names::add);
+        } else {
+            names.add(value);
+        }
+        for (JsonNode name : names) {
+            try {
+                types.add(Type.valueOf(name.asText().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw invalid(path, "unknown type '" + name.asText() + "'");
+            }
+        }
+        return types;
+    }
+
+    private static List<JsonSchema> schemas(JsonNode value, ObjectMapper objectMapper, String path) {
+        if (!value.isArray() || value.isEmpty()) {
+            throw invalid(path, "must be a non-empty array of schemas");
+        }
+        List<JsonSchema> schemas = new ArrayList<>();
+        for (int i = 0; i < value.size(); i++) {
+            schemas.add(compile(value.get(i), objectMapper, path + "/" + i));
+        }
+        return schemas;
+    }
+
+    private static Integer count(JsonNode value, String path) {
+        if (!value.isIntegralNumber() || !value.canConvertToInt() || value.asInt() < 0) {
+            throw invalid(path, "must be a non-negative integer");
+        }
+        return value.asInt();
+    }
+
+    private static BigDecimal number(JsonNode value, String path) {
+        if (!value.isNumber()) {
+            throw invalid(path, "must be a number");
+        }
+        return value.decimalValue();
+    }
+
+    private static RolloutError invalid(String path, String reason) {
+        return new RolloutError("Invalid JSON Schema at " + path + ": " + reason, HttpStatus.BAD_REQUEST);
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.rollout.io.server.controlplaneservice.objects.Helper;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/*
+ * Immutable hash array mapped trie (Bagwell). Every put or remove copies only the path from the root to the
+ * changed slot, at most seven small nodes, and shares everything else with the map it was derived from.
+ * Putting a value that is already mapped (by identity) returns the same map. Null keys and values are rejected.
+ */
+@Helper
+public final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return (V) root.find(0, hash(key), key);
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    public PersistentHashMap<K, V> put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("PersistentHashMap does not accept null keys or values");
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, hash(key), key, value, added);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public PersistentHashMap<K, V> remove(Object key) {
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private interface Node {
+
+        Object find(int shift, int hash, Object key);
+
+        Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        Node remove(int shift, int hash, Object key); // null once the node is empty
+
+        void forEach(BiConsumer<Object, Object> action);
+
+    }
+
+    // Slots hold key/value pairs; a null key means the value slot is a child node one level down
+    private static final class BitmapNode implements Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = index(bit);
+            Object slotKey = slots[i];
+            if (slotKey == null) {
+                return ((Node) slots[i + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(slotKey) ? slots[i + 1] : null;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(slots, i, copy, i + 2, slots.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+
+            Object slotKey = slots[i];
+            Object slotValue = slots[i + 1];
+            if (slotKey == null) {
+                Node child = ((Node) slotValue).put(shift + BITS, hash, key, value, added);
+                return child == slotValue ? this : with(i, null, child);
+            }
+            if (key.equals(slotKey)) {
+                return slotValue == value ? this : with(i, slotKey, value);
+            }
+            added[0] = true;
+            return with(i, null, pair(shift + BITS, slotKey, slotValue, hash, key, value));
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = index(bit);
+            Object slotKey = slots[i];
+            if (slotKey == null) {
+                Node child = ((Node) slots[i + 1]).remove(shift + BITS, hash, key);
+                if (child == slots[i + 1]) {
+                    return this;
+                }
+                return child != null ? with(i, null, child) : without(bit, i);
+            }
+            return key.equals(slotKey) ? without(bit, i) : this;
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] == null) {
+                    ((Node) slots[i + 1]).forEach(action);
+                } else {
+                    action.accept(slots[i], slots[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode with(int i, Object key, Object value) {
+            Object[] copy = slots.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private BitmapNode without(int bit, int i) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new BitmapNode(bitmap ^ bit, copy);
+        }
+
+        private static Node pair(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, ignored).put(shift, hash2, key2, value2, ignored);
+        }
+
+    }
+
+    // Keys whose full 32-bit hashes collide, kept as a flat list of pairs
+    private static final class CollisionNode implements Node {
+
+        private final int hash;
+        private final Object[] slots;
+
+        private CollisionNode(int hash, Object[] slots) {
+            this.hash = hash;
+            this.slots = slots;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (key.equals(slots[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : slots[i + 1];
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node one level down so the differing hash gets its own slot
+                return new BitmapNode(bit(this.hash, shift), new Object[]{null, this}).put(shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (slots[i + 1] == value) {
+                    return this;
+                }
+                Object[] copy = slots.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = Arrays.copyOf(slots, slots.length + 2);
+            copy[slots.length] = key;
+            copy[slots.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            if (slots.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 2, copy, i, slots.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < slots.length; i += 2) {
+                action.accept(slots[i], slots[i + 1]);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.rollout.io.server.controlplaneservice.objects.Helper;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Helper
+public class SearchTokens {
+
+    public static final int GRAM_SIZE = 3;
+
+    private SearchTokens() {
+        // Private constructor to hide the implicit public one in utility classes
+    }
+
+    // Lowercase, accents stripped and separators collapsed, so "Checkout_V2" and "checkout v2" match alike
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+        return decomposed.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    // Distinct trigrams of every given name; names shorter than a trigram are indexed whole
+    public static List<String> grams(String... names) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String name : names) {
+            grams.addAll(gramsOf(normalize(name)));
+        }
+        return new ArrayList<>(grams);
+    }
+
+    public static Set<String> gramsOf(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return grams;
+        }
+        if (normalized.length() < GRAM_SIZE) {
+            grams.add(normalized);
+            return grams;
+        }
+        for (int i = 0; i + GRAM_SIZE <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+}
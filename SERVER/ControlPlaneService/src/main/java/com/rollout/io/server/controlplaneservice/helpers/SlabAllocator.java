@@ -0,0 +1,144 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.rollout.io.server.controlplaneservice.objects.Helper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Slab allocator over off-heap memory, in the style of memcached. Memory comes in fixed-size slabs, either
+ * direct buffers or pages of a memory-mapped file, and each slab is carved into chunks of one power-of-two
+ * size class. Freed chunks go back on their class's free list; slabs are never returned or moved between
+ * classes. Requests larger than a slab, or made once every slab is in use, return null so the caller can fall
+ * back to the heap, as do all requests for new slabs once the memory for one could not be had.
+ */
+@Slf4j
+@Helper
+public class SlabAllocator {
+
+    public record Chunk(int sizeClass, int slab, int offset, ByteBuffer buffer) {
+    }
+
+    private final int slabBytes;
+    private final int minChunkBytes;
+    private final int maxSlabs;
+    private final Path directory;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final ArrayDeque<long[]>[] freeChunks;
+    private final int[] carvingSlab;
+    private final int[] carvingOffset;
+    private long usedBytes;
+    private boolean slabsExhausted;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SlabAllocator(int slabBytes, int minChunkBytes, int maxSlabs, Path directory) {
+        if (Integer.bitCount(slabBytes) != 1 || Integer.bitCount(minChunkBytes) != 1 || minChunkBytes > slabBytes) {
+            throw new IllegalArgumentException("Slab and chunk sizes must be powers of two, chunk <= slab");
+        }
+        this.slabBytes = slabBytes;
+        this.minChunkBytes = minChunkBytes;
+        this.maxSlabs = maxSlabs;
+        this.directory = directory;
+
+        int classes = Integer.numberOfTrailingZeros(slabBytes) - Integer.numberOfTrailingZeros(minChunkBytes) + 1;
+        this.freeChunks = new ArrayDeque[classes];
+        this.carvingSlab = new int[classes];
+        this.carvingOffset = new int[classes];
+        for (int i = 0; i < classes; i++) {
+            freeChunks[i] = new ArrayDeque<>();
+            carvingSlab[i] = -1;
+        }
+    }
+
+    // A chunk whose buffer has position 0 and limit size, or null when the request cannot be served off-heap
+    public synchronized Chunk allocate(int size) {
+        if (size <= 0 || size > slabBytes) {
+            return null;
+        }
+        int sizeClass = sizeClass(size);
+        int chunkBytes = minChunkBytes << sizeClass;
+
+        long[] free = freeChunks[sizeClass].poll();
+        if (free != null) {
+            return chunk(sizeClass, (int) free[0], (int) free[1], size);
+        }
+
+        if (carvingSlab[sizeClass] < 0 || carvingOffset[sizeClass] + chunkBytes > slabBytes) {
+            if (slabs.size() >= maxSlabs || slabsExhausted) {
+                return null;
+            }
+            ByteBuffer slab = newSlab(slabs.size());
+            if (slab == null) {
+                slabsExhausted = true;
+                return null;
+            }
+            slabs.add(slab);
+            carvingSlab[sizeClass] = slabs.size() - 1;
+            carvingOffset[sizeClass] = 0;
+        }
+        int offset = carvingOffset[sizeClass];
+        carvingOffset[sizeClass] += chunkBytes;
+        return chunk(sizeClass, carvingSlab[sizeClass], offset, size);
+    }
+
+    public synchronized void free(Chunk chunk) {
+        freeChunks[chunk.sizeClass()].push(new long[]{chunk.slab(), chunk.offset()});
+        usedBytes -= minChunkBytes << chunk.sizeClass();
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long reservedBytes() {
+        return (long) slabs.size() * slabBytes;
+    }
+
+    private Chunk chunk(int sizeClass, int slab, int offset, int size) {
+        usedBytes += minChunkBytes << sizeClass;
+        ByteBuffer buffer = slabs.get(slab).duplicate().position(offset).limit(offset + size).slice();
+        return new Chunk(sizeClass, slab, offset, buffer);
+    }
+
+    private int sizeClass(int size) {
+        int rounded = Math.max(size, minChunkBytes);
+        int bits = 32 - Integer.numberOfLeadingZeros(rounded - 1); // ceil(log2(rounded))
+        return bits - Integer.numberOfTrailingZeros(minChunkBytes);
+    }
+
+    // Null when the memory is not there, e.g. past -XX:MaxDirectMemorySize or with a full disk
+    private ByteBuffer newSlab(int index) {
+        if (directory == null) {
+            try {
+                return ByteBuffer.allocateDirect(slabBytes);
+            } catch (OutOfMemoryError e) {
+                log.warn("No direct memory for slab {}; further bodies stay on the heap: {}", index, e.getMessage());
+                return null;
+            }
+        }
+        // The file is unlinked right away; the mapping keeps the pages alive until the buffer is collected
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "slab-" + index + "-", ".bin");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, slabBytes);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Cannot map slab {} in {}; further bodies stay on the heap", index, directory, e);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.DeletionJob;
+import com.rollout.io.server.controlplaneservice.entity.DeletionJobStatus;
+import com.rollout.io.server.controlplaneservice.entity.DeletionTargetType;
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpoint;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import com.rollout.io.server.controlplaneservice.entity.Project;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.repository.DeletionJobRepository;
+import com.rollout.io.server.controlplaneservice.service.CascadeDeletionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class CascadeDeletionServiceLogic implements CascadeDeletionService {
+
+    private static final Set<DeletionJobStatus> FINISHED = EnumSet.of(DeletionJobStatus.COMPLETED, DeletionJobStatus.CANCELLED);
+
+    // Everything that hangs off an environment besides its flags, removed after them in this order
+    private static final List<Class<?>> ENVIRONMENT_CHILDREN = List.of(RolloutPlan.class, FlagSchedule.class, FlagRevision.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final DeletionJobRepository deletionJobRepository;
+    private final int batchSize;
+    private final int batchesPerClaim;
+    private final long pauseBetweenBatchesMs;
+    private final long tickMs;
+    private final Duration lease;
+    private final Duration maxTargetWait;
+
+    private final String workerId = UUID.randomUUID().toString();
+    private final AtomicLong openJobs = new AtomicLong();
+    private final Counter deletedFlags;
+    private final Counter deletedEnvironments;
+
+    // Only the worker thread touches the job being worked
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cascade-deletion-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private DeletionJob current;
+    private int batchesDone;
+
+    public CascadeDeletionServiceLogic(MongoTemplate mongoTemplate,
+                                       DeletionJobRepository deletionJobRepository,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${rollout.cascade-deletion.tick-ms:1000}") long tickMs,
+                                       @Value("${rollout.cascade-deletion.batch-size:500}") int batchSize,
+                                       @Value("${rollout.cascade-deletion.batches-per-claim:4}") int batchesPerClaim,
+                                       @Value("${rollout.cascade-deletion.pause-between-batches-ms:100}") long pauseBetweenBatchesMs,
+                                       @Value("${rollout.cascade-deletion.lease-seconds:60}") long leaseSeconds,
+                                       @Value("${rollout.cascade-deletion.max-target-wait-seconds:3600}") long maxTargetWaitSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.deletionJobRepository = deletionJobRepository;
+        this.tickMs = tickMs;
+        this.batchSize = batchSize;
+        this.batchesPerClaim = batchesPerClaim;
+        this.pauseBetweenBatchesMs = pauseBetweenBatchesMs;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxTargetWait = Duration.ofSeconds(maxTargetWaitSeconds);
+
+        this.deletedFlags = meterRegistry.counter("rollout.cascade.deleted", "kind", "flag");
+        this.deletedEnvironments = meterRegistry.counter("rollout.cascade.deleted", "kind", "environment");
+        meterRegistry.gauge("rollout.cascade.jobs.open", openJobs);
+    }
+
+    @Override
+    public DeletionJob scheduleProjectDeletion(String projectId) {
+        return schedule(DeletionTargetType.PROJECT, projectId);
+    }
+
+    @Override
+    public DeletionJob scheduleEnvironmentDeletion(String environmentId) {
+        return schedule(DeletionTargetType.ENVIRONMENT, environmentId);
+    }
+
+    private DeletionJob schedule(DeletionTargetType targetType, String targetId) {
+        Instant now = Instant.now();
+        return deletionJobRepository.save(DeletionJob.builder()
+                .targetType(targetType)
+                .targetId(targetId)
+                .status(DeletionJobStatus.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+
+    @PostConstruct
+    void start() {
+        worker.schedule(this::processJobs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+    }
+
+    // Runs on its own thread and reschedules itself, so the pause between batches never holds the shared scheduler
+    void processJobs() {
+        long delayMs = tickMs;
+        try {
+            delayMs = runBatch();
+        } catch (RuntimeException e) {
+            log.warn("Cascade deletion of {} {} failed, will retry after lease expiry",
+                    current == null ? null : current.getTargetType(), current == null ? null : current.getTargetId(), e);
+            current = null;
+        } finally {
+            if (!worker.isShutdown()) {
+                worker.schedule(this::processJobs, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Returns the delay before the next run: the batch pause while a job is being worked, the tick otherwise
+    private long runBatch() {
+        if (current == null) {
+            openJobs.set(deletionJobRepository.countByStatusNotIn(FINISHED));
+            current = claimJob();
+            batchesDone = 0;
+            if (current == null) {
+                return tickMs;
+            }
+            if (targetExists(current)) {
+                waitForTarget(current);
+                current = null;
+                return tickMs;
+            }
+        }
+
+        if (!deleteNextBatch(current)) {
+            complete(current);
+            current = null;
+            return pauseBetweenBatchesMs;
+        }
+
+        // Bounded work per claim keeps the delete load on Mongo flat and lets other replicas take turns
+        if (++batchesDone >= batchesPerClaim) {
+            releaseLease(current);
+            current = null;
+            return tickMs;
+        }
+        return pauseBetweenBatchesMs;
+    }
+
+    // The job is written just before its target is deleted; it waits for that, and gives up if it never happened
+    private void waitForTarget(DeletionJob job) {
+        Instant now = Instant.now();
+        if (job.getCreatedAt().plus(maxTargetWait).isBefore(now)) {
+            log.warn("Cancelling cascade deletion of {} {}: it was never deleted", job.getTargetType(), job.getTargetId());
+            finish(job, DeletionJobStatus.CANCELLED);
+            return;
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId()).and("leaseOwner").is(workerId)),
+                new Update()
+                        .set("status", DeletionJobStatus.PENDING)
+                        .set("leaseUntil", now.plusMillis(tickMs * 5))
+                        .set("updatedAt", now),
+                DeletionJob.class);
+    }
+
+    private boolean targetExists(DeletionJob job) {
+        Class<?> type = job.getTargetType() == DeletionTargetType.PROJECT ? Project.class : Environment.class;
+        return mongoTemplate.exists(new Query(Criteria.where("_id").is(job.getTargetId())), type);
+    }
+
+    private DeletionJob claimJob() {
+        Instant now = Instant.now();
+        Query query = new Query(Criteria.where("status").nin(FINISHED)
+                .orOperator(Criteria.where("leaseUntil").is(null), Criteria.where("leaseUntil").lt(now)))
+                .with(Sort.by("createdAt"));
+
+        Update update = new Update()
+                .set("status", DeletionJobStatus.RUNNING)
+                .set("leaseOwner", workerId)
+                .set("leaseUntil", now.plus(lease))
+                .set("updatedAt", now);
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), DeletionJob.class);
+    }
+
+    // Returns false once nothing is left to delete for the job
+    private boolean deleteNextBatch(DeletionJob job) {
+        String environmentId = job.getTargetType() == DeletionTargetType.ENVIRONMENT
+                ? job.getTargetId()
+                : nextEnvironmentOfProject(job.getTargetId());
+
+        if (environmentId == null) {
+            return false;
+        }
+
+        long flags = deleteFlagBatch(environmentId);
+        long others = flags == 0 ? deleteChildBatch(environmentId) : 0;
+        long environments = 0;
+        if (flags + others == 0 && job.getTargetType() == DeletionTargetType.PROJECT) {
+            environments = mongoTemplate.remove(new Query(Criteria.where("_id").is(environmentId)), Environment.class).getDeletedCount();
+        } else if (flags + others == 0) {
+            return false;
+        }
+
+        deletedFlags.increment(flags);
+        deletedEnvironments.increment(environments);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId()).and("leaseOwner").is(workerId)),
+                new Update()
+                        .inc("deletedFlags", flags)
+                        .inc("deletedEnvironments", environments)
+                        .set("leaseUntil", Instant.now().plus(lease))
+                        .set("updatedAt", Instant.now()),
+                DeletionJob.class);
+        return true;
+    }
+
+    private String nextEnvironmentOfProject(String projectId) {
+        Query query = new Query(Criteria.where("projectId").is(projectId));
+        query.fields().include("_id");
+        Environment environment = mongoTemplate.findOne(query, Environment.class);
+        return environment == null ? null : environment.getId();
+    }
+
+    private long deleteFlagBatch(String environmentId) {
+        Query idQuery = new Query(Criteria.where("environmentId").is(environmentId)).limit(batchSize);
+        idQuery.fields().include("_id");
+
+        List<String> ids = mongoTemplate.find(idQuery, Flag.class).stream().map(Flag::getId).toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), Flag.class).getDeletedCount();
+    }
+
+    // Plans and schedules, then history, then checkpoints with their entries; one batch of the first kind left
+    private long deleteChildBatch(String environmentId) {
+        for (Class<?> type : ENVIRONMENT_CHILDREN) {
+            long deleted = deleteBatch(new Query(Criteria.where("environmentId").is(environmentId)), type);
+            if (deleted > 0) {
+                return deleted;
+            }
+        }
+
+        Query checkpointQuery = new Query(Criteria.where("environmentId").is(environmentId));
+        checkpointQuery.fields().include("_id");
+        FlagCheckpoint checkpoint = mongoTemplate.findOne(checkpointQuery, FlagCheckpoint.class);
+        if (checkpoint == null) {
+            return 0;
+        }
+        long entries = deleteBatch(new Query(Criteria.where("checkpointId").is(checkpoint.getId())), FlagCheckpointEntry.class);
+        return entries > 0 ? entries
+                : mongoTemplate.remove(new Query(Criteria.where("_id").is(checkpoint.getId())), FlagCheckpoint.class).getDeletedCount();
+    }
+
+    private long deleteBatch(Query query, Class<?> type) {
+        query.limit(batchSize).fields().include("_id");
+        List<Object> ids = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(type)).stream()
+                .map(document -> document.get("_id"))
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), type).getDeletedCount();
+    }
+
+    private void complete(DeletionJob job) {
+        finish(job, DeletionJobStatus.COMPLETED);
+    }
+
+    private void finish(DeletionJob job, DeletionJobStatus status) {
+        Instant now = Instant.now();
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId())),
+                new Update()
+                        .set("status", status)
+                        .set("completedAt", now)
+                        .set("updatedAt", now)
+                        .unset("leaseOwner")
+                        .unset("leaseUntil"),
+                DeletionJob.class);
+    }
+
+    private void releaseLease(DeletionJob job) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId()).and("leaseOwner").is(workerId)),
+                new Update().unset("leaseUntil").set("updatedAt", Instant.now()),
+                DeletionJob.class);
+    }
+
+}
@@ -1,14 +1,20 @@
 package com.rollout.io.server.controlplaneservice.logic;
 
-import com.rollout.io.server.controlplaneservice.entity.Environment;
 import com.rollout.io.server.controlplaneservice.entity.Flag;
 import com.rollout.io.server.controlplaneservice.entity.FlagCategory;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
 import com.rollout.io.server.controlplaneservice.entity.FlagType;
+import com.rollout.io.server.controlplaneservice.entity.SdkFetchStatus;
 import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.objects.SdkBatchRequest;
+import com.rollout.io.server.controlplaneservice.objects.SdkEnvironmentFlags;
+import com.rollout.io.server.controlplaneservice.objects.SdkKeyRevision;
+import com.rollout.io.server.controlplaneservice.objects.SdkPayload;
 import com.rollout.io.server.controlplaneservice.repository.FlagRepository;
 import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
 import com.rollout.io.server.controlplaneservice.service.CoreFlagService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
@@ -16,8 +22,10 @@ import org.springframework.stereotype.Service;
 import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +34,9 @@ public class CoreFlagServiceLogic implements CoreFlagService {
     private final FlagRepository flagRepository;
     private final EnvironmentService environmentService;
     private final FlagHelperLogic flagHelperLogic;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final SdkSnapshotCache sdkSnapshotCache;
+    private final SdkResponseEncoder sdkResponseEncoder;
 
     @Override
     public Flag createCoreFlag(Jwt jwt, String environmentId, Flag flag) {
@@ -41,6 +52,8 @@ public class CoreFlagServiceLogic implements CoreFlagService {
         }
 
         flagHelperLogic.validateFlagValue(flag);
+        flagHelperLogic.validateRolloutPercentage(flag.getRolloutPercentage());
+        flag.setTags(flagHelperLogic.normalizeTags(flag.getTags()));
 
         flag.setEnvironmentId(environmentId);
         flag.setCategory(FlagCategory.CORE);
@@ -54,7 +67,9 @@ public class CoreFlagServiceLogic implements CoreFlagService {
             flag.setEnabled(false);
         }
 
-        return flagRepository.save(flag);
+        Flag savedFlag = flagRepository.save(flag);
+        flagChangeRecorder.record(FlagChangeType.CREATE, savedFlag, savedFlag.getCreatedByUid());
+        return savedFlag;
     }
 
     @Override
@@ -87,11 +102,78 @@ public class CoreFlagServiceLogic implements CoreFlagService {
     }
 
     @Override
-    public List<Flag> getCoreFlagsBySdkKey(String sdkKey) {
-        // Find environment using the SDK key (public access endpoint concept)
-        Environment environment = environmentService.getEnvironmentBySdkKey(sdkKey);
+    public SdkPayload getCoreFlagsBySdkKey(String sdkKey, Set<String> tags, String keyPrefix, String ifNoneMatch) {
+        // Served from the cached snapshot of the SDK key's environment (public access endpoint concept)
+        EnvironmentSnapshot snapshot = sdkSnapshotCache.get(sdkKey);
+        String etag = "\"" + snapshot.getRevision() + "\""; // the URL carries the filter, so the revision identifies the body
+        if (ifNoneMatch != null && notModified(ifNoneMatch, etag)) {
+            return new SdkPayload(etag, true);
+        }
+
+        SnapshotBody flags = snapshot.encodedFlags(normalizeTags(tags), keyPrefix);
+        return new SdkPayload(etag, false,
+                sdkResponseEncoder.encodeEnvironment(snapshot.getEnvironmentId(), snapshot.getRevision(), flags.slice()),
+                flags::release);
+    }
+
+    // If-None-Match compares weakly, so W/"3" matches "3", and * matches any current body.
+    // A malformed header is ignored and the full body is sent.
+    private boolean notModified(String ifNoneMatch, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        try {
+            for (String tag : headers.getIfNoneMatch()) {
+                if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return false;
+    }
+
+    @Override
+    public SdkPayload getCoreFlagsBySdkKeys(SdkBatchRequest request) {
+        Set<String> tags = normalizeTags(request.getTags());
+        List<SdkKeyRevision> requested = request.getEnvironments();
+        List<EnvironmentSnapshot> snapshots = sdkSnapshotCache.getAll(requested.stream().map(SdkKeyRevision::getSdkKey).toList());
+
+        List<SdkEnvironmentFlags> results = new ArrayList<>(requested.size());
+        List<SnapshotBody> bodies = new ArrayList<>();
+        boolean allUnchanged = true;
+        for (int i = 0; i < requested.size(); i++) {
+            SdkKeyRevision known = requested.get(i);
+            EnvironmentSnapshot snapshot = snapshots.get(i);
+
+            if (snapshot == null) {
+                results.add(new SdkEnvironmentFlags(known.getSdkKey(), SdkFetchStatus.NOT_FOUND, null, null, null));
+                allUnchanged = false;
+            } else if (known.getRevision() != null && known.getRevision() == snapshot.getRevision()) {
+                results.add(new SdkEnvironmentFlags(known.getSdkKey(), SdkFetchStatus.NOT_MODIFIED,
+                        snapshot.getEnvironmentId(), snapshot.getRevision(), null));
+            } else {
+                SnapshotBody flags = snapshot.encodedFlags(tags, request.getPrefix());
+                bodies.add(flags);
+                results.add(new SdkEnvironmentFlags(known.getSdkKey(), SdkFetchStatus.OK,
+                        snapshot.getEnvironmentId(), snapshot.getRevision(), flags.slice()));
+                allUnchanged = false;
+            }
+        }
+
+        if (allUnchanged) {
+            return new SdkPayload(null, true);
+        }
+        try {
+            return new SdkPayload(null, false, sdkResponseEncoder.encodeBatch(results), () -> bodies.forEach(SnapshotBody::release));
+        } catch (RuntimeException e) {
+            bodies.forEach(SnapshotBody::release);
+            throw e;
+        }
+    }
 
-        return flagRepository.findAllByEnvironmentIdAndCategory(environment.getId(), FlagCategory.CORE);
+    private Set<String> normalizeTags(Set<String> tags) {
+        return tags == null ? null : Set.copyOf(flagHelperLogic.normalizeTags(List.copyOf(tags)));
     }
 
     @Override
@@ -114,6 +196,10 @@ public class CoreFlagServiceLogic implements CoreFlagService {
             existingFlag.setDescription(updateRequest.getDescription());
         }
 
+        if (updateRequest.getTags() != null) {
+            existingFlag.setTags(flagHelperLogic.normalizeTags(updateRequest.getTags()));
+        }
+
         // Only allow core updates for now
         if (existingFlag.getCategory() != FlagCategory.CORE) {
              throw new RolloutError("Only Core flags can be updated via this endpoint", HttpStatus.BAD_REQUEST);
@@ -131,8 +217,24 @@ public class CoreFlagServiceLogic implements CoreFlagService {
             valueChanged = true;
         }
         
-        if (valueChanged) {
+        if (updateRequest.getRolloutPercentage() != null && !updateRequest.getRolloutPercentage().equals(existingFlag.getRolloutPercentage())) {
+            flagHelperLogic.validateRolloutPercentage(updateRequest.getRolloutPercentage());
+            existingFlag.setRolloutPercentage(updateRequest.getRolloutPercentage());
+            valueChanged = true;
+        }
+
+        // A new schema doesn't change what SDKs see, but the current value must satisfy it. A null schema means
+        // "unchanged" here, like every other field; removeCoreFlagSchema drops it.
+        boolean schemaChanged = updateRequest.getSchema() != null && !Objects.equals(updateRequest.getSchema(), existingFlag.getSchema());
+        if (schemaChanged) {
+            existingFlag.setSchema(updateRequest.getSchema());
+            existingFlag.setSchemaHash(null);
+        }
+
+        if (valueChanged || schemaChanged) {
             flagHelperLogic.validateFlagValue(existingFlag);
+        }
+        if (valueChanged) {
             existingFlag.setVersion(existingFlag.getVersion() + 1); // Increment version on value change
         }
 
@@ -141,13 +243,31 @@ public class CoreFlagServiceLogic implements CoreFlagService {
         }
 
         existingFlag.setUpdatedAt(Instant.now());
-        return flagRepository.save(existingFlag);
+        Flag savedFlag = flagRepository.save(existingFlag);
+        flagChangeRecorder.record(FlagChangeType.UPDATE, savedFlag, JwtHelper.getUidFromJwt(jwt));
+        return savedFlag;
+    }
+
+    @Override
+    public Flag removeCoreFlagSchema(Jwt jwt, String flagId) {
+        Flag flag = getCoreFlag(jwt, flagId); // Handles access check
+        if (flag.getSchema() == null) {
+            return flag;
+        }
+        // Like a new schema, dropping one leaves what SDKs see untouched, so the version stays
+        flag.setSchema(null);
+        flag.setSchemaHash(null);
+        flag.setUpdatedAt(Instant.now());
+        Flag savedFlag = flagRepository.save(flag);
+        flagChangeRecorder.record(FlagChangeType.UPDATE, savedFlag, JwtHelper.getUidFromJwt(jwt));
+        return savedFlag;
     }
 
     @Override
     public void deleteCoreFlag(Jwt jwt, String flagId) {
         Flag flag = getCoreFlag(jwt, flagId); // Handles access check
         flagRepository.delete(flag);
+        flagChangeRecorder.record(FlagChangeType.DELETE, flag, JwtHelper.getUidFromJwt(jwt));
     }
 
     @Override
@@ -156,7 +276,9 @@ public class CoreFlagServiceLogic implements CoreFlagService {
         flag.setEnabled(!Boolean.TRUE.equals(flag.getEnabled()));
         flag.setVersion(flag.getVersion() + 1); // Increment version when toggled
         flag.setUpdatedAt(Instant.now());
-        return flagRepository.save(flag);
+        Flag savedFlag = flagRepository.save(flag);
+        flagChangeRecorder.record(FlagChangeType.TOGGLE, savedFlag, JwtHelper.getUidFromJwt(jwt));
+        return savedFlag;
     }
 
 }
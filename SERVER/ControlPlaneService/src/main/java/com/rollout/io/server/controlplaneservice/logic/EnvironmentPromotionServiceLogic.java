@@ -0,0 +1,206 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.rollout.io.server.controlplaneservice.entity.DependencyCondition;
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.PromotionMode;
+import com.rollout.io.server.controlplaneservice.entity.RuleNode;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.objects.PromotionResult;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentPromotionService;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Service
+public class EnvironmentPromotionServiceLogic implements EnvironmentPromotionService {
+
+    private final MongoTemplate mongoTemplate;
+    private final EnvironmentService environmentService;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final FlagValueBlobStore flagValueBlobStore;
+    private final int batchSize;
+
+    public EnvironmentPromotionServiceLogic(MongoTemplate mongoTemplate,
+                                            EnvironmentService environmentService,
+                                            FlagChangeRecorder flagChangeRecorder,
+                                            FlagValueBlobStore flagValueBlobStore,
+                                            @Value("${rollout.environments.promotion.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.environmentService = environmentService;
+        this.flagChangeRecorder = flagChangeRecorder;
+        this.flagValueBlobStore = flagValueBlobStore;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public PromotionResult promoteEnvironment(Jwt jwt, String sourceEnvironmentId, String targetEnvironmentId, PromotionMode mode) {
+        if (sourceEnvironmentId.equals(targetEnvironmentId)) {
+            throw new RolloutError("Source and target environment must be different", HttpStatus.BAD_REQUEST);
+        }
+        environmentService.getEnvironmentById(jwt, sourceEnvironmentId);
+        environmentService.getEnvironmentById(jwt, targetEnvironmentId);
+
+        return copyFlags(sourceEnvironmentId, targetEnvironmentId, mode == null ? PromotionMode.OVERWRITE : mode, JwtHelper.getUidFromJwt(jwt));
+    }
+
+    @Override
+    public PromotionResult cloneEnvironment(Jwt jwt, String sourceEnvironmentId, String newName) {
+        Environment source = environmentService.getEnvironmentById(jwt, sourceEnvironmentId);
+
+        Environment target = environmentService.createEnvironment(jwt, Environment.builder()
+                .projectId(source.getProjectId())
+                .name(newName)
+                .build());
+
+        return copyFlags(sourceEnvironmentId, target.getId(), PromotionMode.OVERWRITE, JwtHelper.getUidFromJwt(jwt));
+    }
+
+    private PromotionResult copyFlags(String sourceEnvironmentId, String targetEnvironmentId, PromotionMode mode, String uid) {
+        long start = System.nanoTime();
+
+        // Pass 1: key -> id for both sides (ids only), so dependency references can point at target ids
+        Map<String, String> targetIdsByKey = loadIdsByKey(targetEnvironmentId);
+        Map<String, String> remappedIds = new HashMap<>();
+        for (Map.Entry<String, String> source : loadIdsByKey(sourceEnvironmentId).entrySet()) {
+            String targetId = targetIdsByKey.get(source.getKey());
+            remappedIds.put(source.getValue(), targetId != null ? targetId : new ObjectId().toHexString());
+        }
+
+        // Pass 2: stream full source documents and upsert them into the target in bulk batches
+        long created = 0;
+        long updated = 0;
+        long skipped = 0;
+        Instant now = Instant.now();
+        List<Flag> batch = new ArrayList<>(batchSize);
+
+        Query sourceQuery = new Query(Criteria.where("environmentId").is(sourceEnvironmentId)).cursorBatchSize(batchSize);
+        try (Stream<Flag> flags = mongoTemplate.stream(sourceQuery, Flag.class)) {
+            for (Flag flag : (Iterable<Flag>) flags::iterator) {
+                if (mode == PromotionMode.MERGE && targetIdsByKey.containsKey(flag.getKey())) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(flag);
+                if (batch.size() == batchSize) {
+                    BulkWriteResult result = writeBatch(batch, targetEnvironmentId, remappedIds, mode, uid, now);
+                    created += result.getUpserts().size();
+                    updated += result.getModifiedCount();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            BulkWriteResult result = writeBatch(batch, targetEnvironmentId, remappedIds, mode, uid, now);
+            created += result.getUpserts().size();
+            updated += result.getModifiedCount();
+        }
+
+        if (created + updated > 0) {
+            flagChangeRecorder.checkpoint(targetEnvironmentId);
+        }
+
+        return new PromotionResult(sourceEnvironmentId, targetEnvironmentId, created, updated, skipped,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private BulkWriteResult writeBatch(List<Flag> batch, String targetEnvironmentId, Map<String, String> remappedIds,
+                                       PromotionMode mode, String uid, Instant now) {
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Flag.class);
+
+        for (Flag flag : batch) {
+            Query query = new Query(Criteria.where("environmentId").is(targetEnvironmentId).and("key").is(flag.getKey()));
+            Update update = new Update()
+                    .setOnInsert("_id", new ObjectId(remappedIds.get(flag.getId())))
+                    .setOnInsert("createdByUid", uid)
+                    .setOnInsert("createdAt", now);
+
+            // MERGE never touches an existing target flag, even if it appeared after pass 1
+            boolean overwrite = mode == PromotionMode.OVERWRITE;
+            set(update, overwrite, "displayName", flag.getDisplayName());
+            set(update, overwrite, "description", flag.getDescription());
+            set(update, overwrite, "type", flag.getType());
+            set(update, overwrite, "category", flag.getCategory());
+            set(update, overwrite, "enabled", flag.getEnabled());
+            flagValueBlobStore.valueFields(flag).forEach((field, value) -> set(update, overwrite, field, value));
+            set(update, overwrite, "schema", flag.getSchema());
+            set(update, overwrite, "schemaHash", flag.getSchemaHash());
+            set(update, overwrite, "rolloutPercentage", flag.getRolloutPercentage());
+            set(update, overwrite, "tags", flag.getTags());
+            set(update, overwrite, "dependency", remap(flag.getDependency(), remappedIds));
+            set(update, overwrite, "updatedAt", now);
+            set(update, overwrite, "searchName", SearchIndexer.searchName(flag));
+            set(update, overwrite, "searchGrams", SearchIndexer.searchGrams(flag));
+            if (overwrite) {
+                update.inc("version", 1);
+            } else {
+                update.setOnInsert("version", 1);
+            }
+
+            bulkOps.upsert(query, update);
+        }
+
+        return bulkOps.execute();
+    }
+
+    private void set(Update update, boolean overwrite, String field, Object value) {
+        if (overwrite) {
+            update.set(field, value);
+        } else {
+            update.setOnInsert(field, value);
+        }
+    }
+
+    private Map<String, String> loadIdsByKey(String environmentId) {
+        Query query = new Query(Criteria.where("environmentId").is(environmentId)).cursorBatchSize(batchSize);
+        query.fields().include("key");
+
+        Map<String, String> idsByKey = new HashMap<>();
+        try (Stream<Flag> flags = mongoTemplate.stream(query, Flag.class)) {
+            flags.forEach(flag -> idsByKey.put(flag.getKey(), flag.getId()));
+        }
+        return idsByKey;
+    }
+
+    private RuleNode remap(RuleNode node, Map<String, String> remappedIds) {
+        if (node == null) {
+            return null;
+        }
+
+        List<RuleNode> children = null;
+        if (node.getChildren() != null) {
+            children = new ArrayList<>(node.getChildren().size());
+            for (RuleNode child : node.getChildren()) {
+                children.add(remap(child, remappedIds));
+            }
+        }
+
+        DependencyCondition condition = null;
+        if (node.getCondition() != null) {
+            String flagId = node.getCondition().getFlagId();
+            // References outside the source environment are kept as-is
+            condition = new DependencyCondition(remappedIds.getOrDefault(flagId, flagId), node.getCondition().getExpectedValue());
+        }
+
+        return new RuleNode(node.getOperator(), children, condition);
+    }
+
+}
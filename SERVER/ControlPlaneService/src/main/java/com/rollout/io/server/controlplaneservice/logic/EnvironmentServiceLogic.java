@@ -4,6 +4,7 @@ import com.rollout.io.server.controlplaneservice.entity.Environment;
 import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
 import com.rollout.io.server.controlplaneservice.repository.EnvironmentRepository;
 import com.rollout.io.server.controlplaneservice.repository.ProjectRepository;
+import com.rollout.io.server.controlplaneservice.service.CascadeDeletionService;
 import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -11,6 +12,7 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
 import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.helpers.SearchTokens;
 
 import java.time.Instant;
 import java.util.List;
@@ -22,6 +24,7 @@ public class EnvironmentServiceLogic implements EnvironmentService {
 
     private final EnvironmentRepository environmentRepository;
     private final ProjectRepository projectRepository;
+    private final CascadeDeletionService cascadeDeletionService;
 
     @Override
     public Environment createEnvironment(Jwt jwt, Environment environment) {
@@ -72,6 +75,8 @@ public class EnvironmentServiceLogic implements EnvironmentService {
     public void deleteEnvironment(Jwt jwt, String environmentId) {
         Environment environment = getEnvironmentById(jwt, environmentId); // Reuses the access check
 
+        // Flags are removed in the background by the cascade deletion job, which waits until the environment is gone
+        cascadeDeletionService.scheduleEnvironmentDeletion(environment.getId());
         environmentRepository.delete(environment);
     }
 
@@ -80,7 +85,8 @@ public class EnvironmentServiceLogic implements EnvironmentService {
         Environment environment = getEnvironmentById(jwt, environmentId); // Reuses the access check
 
         environment.setSdkKey(generateSdkKey());
-        return environmentRepository.save(environment);
+        environmentRepository.updateSdkKeyById(environment.getId(), environment.getSdkKey());
+        return environment;
     }
 
     @Override
@@ -93,7 +99,10 @@ public class EnvironmentServiceLogic implements EnvironmentService {
         }
 
         environment.setName(newName);
-        return environmentRepository.save(environment);
+        environment.setSearchName(SearchTokens.normalize(newName));
+        environment.setSearchGrams(SearchTokens.grams(newName));
+        environmentRepository.updateNameById(environment.getId(), newName, environment.getSearchName(), environment.getSearchGrams());
+        return environment;
     }
 
     @Override
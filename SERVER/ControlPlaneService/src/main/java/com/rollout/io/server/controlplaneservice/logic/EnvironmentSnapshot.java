@@ -0,0 +1,129 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.helpers.PersistentHashMap;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Immutable view of an environment's core flags at one revision, with memoized encoded subsets. Flags live in a
+// persistent map derived from the previous revision's, so a new revision only allocates what changed.
+public class EnvironmentSnapshot {
+
+    @Getter
+    private final String environmentId;
+
+    @Getter
+    private final long revision;
+
+    @Getter
+    private final PersistentHashMap<String, SnapshotFlag> flags;
+
+    // Built on the first encoding, so revisions that are only revalidated or answered 304 never hold one
+    private volatile SnapshotFlag[] flagsByKey;
+    private final Map<String, SnapshotBody> encodedSubsets = new ConcurrentHashMap<>();
+    private final Function<List<SnapshotFlag>, byte[]> encoder;
+    private final Function<byte[], SnapshotBody> bodyStore;
+    private final int maxSubsets;
+    private boolean released;
+
+    public EnvironmentSnapshot(String environmentId, long revision, PersistentHashMap<String, SnapshotFlag> flags,
+                               Function<List<SnapshotFlag>, byte[]> encoder, Function<byte[], SnapshotBody> bodyStore,
+                               int maxSubsets) {
+        this.environmentId = environmentId;
+        this.revision = revision;
+        this.flags = flags;
+        this.encoder = encoder;
+        this.bodyStore = bodyStore;
+        this.maxSubsets = maxSubsets;
+    }
+
+    // Encoded flags carrying any of the tags and, if given, whose key starts with the prefix; ordered by key.
+    // The body comes retained and the caller must release it once written.
+    public SnapshotBody encodedFlags(Set<String> tags, String keyPrefix) {
+        boolean byTags = tags != null && !tags.isEmpty();
+        boolean byPrefix = keyPrefix != null && !keyPrefix.isEmpty();
+
+        String filterKey = (byTags ? String.join(",", new TreeSet<>(tags)) : "") + "|" + (byPrefix ? keyPrefix : "");
+        SnapshotBody cached = encodedSubsets.get(filterKey);
+        if (cached != null && cached.retain()) {
+            return cached;
+        }
+
+        byte[] encoded = encoder.apply(select(tags, keyPrefix, byTags, byPrefix));
+        // Arbitrary prefixes could grow this without bound, so only the first few filters are memoized
+        if (encodedSubsets.size() < maxSubsets) {
+            SnapshotBody body = bodyStore.apply(encoded);
+            synchronized (this) {
+                if (!released && encodedSubsets.putIfAbsent(filterKey, body) == null && body.retain()) {
+                    return body;
+                }
+            }
+            body.release();
+        }
+        return SnapshotBody.onHeap(encoded);
+    }
+
+    // Called once the cache no longer hands this snapshot out; bodies still being written stay valid until released
+    public synchronized void release() {
+        released = true;
+        encodedSubsets.values().forEach(SnapshotBody::release);
+        encodedSubsets.clear();
+    }
+
+    private List<SnapshotFlag> select(Set<String> tags, String keyPrefix, boolean byTags, boolean byPrefix) {
+        SnapshotFlag[] sorted = flagsByKey();
+        List<SnapshotFlag> candidates = byPrefix ? withPrefix(sorted, keyPrefix) : Arrays.asList(sorted);
+        if (!byTags) {
+            return candidates;
+        }
+        // No per-snapshot tag index: it would be rebuilt for every revision, and filtered results are memoized
+        return candidates.stream().filter(flag -> flag.hasAnyTag(tags)).toList();
+    }
+
+    // Only references to the shared entries, ordered for stable output and prefix ranges
+    private SnapshotFlag[] flagsByKey() {
+        SnapshotFlag[] sorted = flagsByKey;
+        if (sorted == null) {
+            // Racing builders produce equal arrays, so either may win
+            sorted = new SnapshotFlag[flags.size()];
+            int[] next = {0};
+            SnapshotFlag[] target = sorted;
+            flags.forEach((key, flag) -> target[next[0]++] = flag);
+            Arrays.sort(sorted, Comparator.comparing(SnapshotFlag::key));
+            flagsByKey = sorted;
+        }
+        return sorted;
+    }
+
+    // Keys are sorted, so a prefix is one contiguous range found by binary search
+    private List<SnapshotFlag> withPrefix(SnapshotFlag[] flagsByKey, String keyPrefix) {
+        int from = lowerBound(flagsByKey, keyPrefix);
+        int to = from;
+        while (to < flagsByKey.length && flagsByKey[to].key().startsWith(keyPrefix)) {
+            to++;
+        }
+        return Arrays.asList(flagsByKey).subList(from, to);
+    }
+
+    private int lowerBound(SnapshotFlag[] flagsByKey, String key) {
+        int low = 0;
+        int high = flagsByKey.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (flagsByKey[mid].key().compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpoint;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Appends flag mutations to flag_history off the request thread and keeps periodic per-environment checkpoints
+@Slf4j
+@Component
+public class FlagChangeRecorder {
+
+    private final MongoTemplate mongoTemplate;
+    private final int flushBatchSize;
+    private final int checkpointInterval;
+
+    private final BlockingQueue<FlagRevision> pending;
+    private final Map<String, Integer> changesSinceCheckpoint = new ConcurrentHashMap<>();
+    private final Set<String> checkpointRequests = ConcurrentHashMap.newKeySet();
+    private final List<FlagRevision> unwritten = new ArrayList<>(); // guarded by flush()
+    private final Counter recordedChanges;
+    private final Counter checkpoints;
+
+    public FlagChangeRecorder(MongoTemplate mongoTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${rollout.flags.history.queue-capacity:100000}") int queueCapacity,
+                              @Value("${rollout.flags.history.flush-batch-size:1000}") int flushBatchSize,
+                              @Value("${rollout.flags.history.checkpoint-interval:500}") int checkpointInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.checkpointInterval = checkpointInterval;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.recordedChanges = meterRegistry.counter("rollout.flags.history.recorded");
+        this.checkpoints = meterRegistry.counter("rollout.flags.history.checkpoints");
+        meterRegistry.gaugeCollectionSize("rollout.flags.history.pending", List.of(), pending);
+    }
+
+    public void record(FlagChangeType changeType, Flag flag, String uid) {
+        enqueue(revision(changeType, flag, uid).flag(changeType == FlagChangeType.DELETE ? null : flag).build());
+    }
+
+    // Value patches keep the operations rather than the value, which may be large; the header carries the new version
+    public void recordPatch(Flag header, List<Map<String, Object>> patch, String uid) {
+        enqueue(revision(FlagChangeType.PATCH, header, uid).flag(header).patch(patch).build());
+    }
+
+    // The id follows from the revision, so a batch retried after a partial write cannot duplicate entries
+    private FlagRevision.FlagRevisionBuilder revision(FlagChangeType changeType, Flag flag, String uid) {
+        long revision = nextRevision(flag.getEnvironmentId());
+        return FlagRevision.builder()
+                .id(flag.getEnvironmentId() + ":" + revision)
+                .environmentId(flag.getEnvironmentId())
+                .flagId(flag.getId())
+                .key(flag.getKey())
+                .revision(revision)
+                .changeType(changeType)
+                .changedByUid(uid)
+                .recordedAt(Instant.now());
+    }
+
+    private void enqueue(FlagRevision revision) {
+        if (!pending.offer(revision)) {
+            // Queue is saturated: write through rather than lose history
+            mongoTemplate.insert(revision);
+            recordedChanges.increment();
+        }
+    }
+
+    // Bulk writers (import, promotion) don't record per-flag entries; a fresh checkpoint captures their result instead.
+    // It is written before they return, so a restart cannot lose it; a failed one is retried by the next flush.
+    public void checkpoint(String environmentId) {
+        nextRevision(environmentId);
+        try {
+            writeCheckpoint(environmentId);
+            changesSinceCheckpoint.put(environmentId, 0);
+        } catch (RuntimeException e) {
+            log.error("Failed to checkpoint environment {}, retrying on the next flush", environmentId, e);
+            checkpointRequests.add(environmentId);
+        }
+    }
+
+    /*
+     * The environment's revision field is its sequence: every change takes the next value with an $inc on the
+     * primary, so revisions are strictly ordered across replicas whatever their clocks say. It is written
+     * synchronously, unlike the history itself, so SDK snapshots see the change on their next validation.
+     */
+    private long nextRevision(String environmentId) {
+        Query query = new Query(Criteria.where("_id").is(environmentId));
+        query.fields().include("revision");
+        Environment environment = mongoTemplate.findAndModify(query, new Update().inc("revision", 1L),
+                FindAndModifyOptions.options().returnNew(true), Environment.class);
+        return environment == null || environment.getRevision() == null ? 0 : environment.getRevision();
+    }
+
+    private long currentRevision(String environmentId) {
+        Query query = new Query(Criteria.where("_id").is(environmentId));
+        query.fields().include("revision");
+        Environment environment = mongoTemplate.findOne(query, Environment.class);
+        return environment == null || environment.getRevision() == null ? 0 : environment.getRevision();
+    }
+
+    // Revisions carry no time, so a timestamp maps to the last change or checkpoint recorded at or before it
+    public long revisionAt(String environmentId, Instant timestamp) {
+        Query changeQuery = new Query(Criteria.where("environmentId").is(environmentId).and("recordedAt").lte(timestamp))
+                .with(Sort.by(Sort.Direction.DESC, "recordedAt"));
+        changeQuery.fields().include("revision");
+        FlagRevision change = mongoTemplate.findOne(changeQuery, FlagRevision.class);
+
+        Query checkpointQuery = new Query(Criteria.where("environmentId").is(environmentId)
+                .and("complete").is(true)
+                .and("createdAt").lte(timestamp))
+                .with(Sort.by(Sort.Direction.DESC, "revision"));
+        checkpointQuery.fields().include("revision");
+        FlagCheckpoint checkpoint = mongoTemplate.findOne(checkpointQuery, FlagCheckpoint.class);
+
+        return Math.max(change == null ? 0 : change.getRevision(), checkpoint == null ? 0 : checkpoint.getRevision());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${rollout.flags.history.flush-ms:200}")
+    public synchronized void flush() {
+        // A batch that failed is retried first; until it is written nothing more is drained, so the bounded queue
+        // pushes back on writers instead of this list growing
+        while (!unwritten.isEmpty() || pending.drainTo(unwritten, flushBatchSize) > 0) {
+            if (!write(unwritten)) {
+                break;
+            }
+            recordedChanges.increment(unwritten.size());
+
+            for (FlagRevision revision : unwritten) {
+                int changes = changesSinceCheckpoint.merge(revision.getEnvironmentId(), 1, Integer::sum);
+                if (changes == 1 && !hasCheckpoint(revision.getEnvironmentId())) {
+                    // Baseline for environments that existed before history was recorded
+                    checkpointRequests.add(revision.getEnvironmentId());
+                } else if (changes >= checkpointInterval) {
+                    checkpointRequests.add(revision.getEnvironmentId());
+                }
+            }
+            unwritten.clear();
+        }
+
+        // Requests stay queued until their checkpoint is complete
+        for (String environmentId : List.copyOf(checkpointRequests)) {
+            try {
+                writeCheckpoint(environmentId);
+                checkpointRequests.remove(environmentId);
+                changesSinceCheckpoint.put(environmentId, 0);
+            } catch (RuntimeException e) {
+                log.error("Failed to checkpoint environment {}, retrying on the next flush", environmentId, e);
+            }
+        }
+    }
+
+    private boolean write(List<FlagRevision> batch) {
+        try {
+            try {
+                mongoTemplate.insert(batch, FlagRevision.class);
+            } catch (DuplicateKeyException e) {
+                // Part of the batch landed before an earlier attempt failed; the rest goes in one by one
+                for (FlagRevision revision : batch) {
+                    try {
+                        mongoTemplate.insert(revision);
+                    } catch (DuplicateKeyException ignored) {
+                        // already written
+                    }
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} flag history entries, retrying on the next flush", batch.size(), e);
+            return false;
+        }
+    }
+
+    private boolean hasCheckpoint(String environmentId) {
+        return mongoTemplate.exists(new Query(Criteria.where("environmentId").is(environmentId).and("complete").is(true)), FlagCheckpoint.class);
+    }
+
+    private void writeCheckpoint(String environmentId) {
+        // Taken before reading: changes take their revision after the flag write, so any change missing from the
+        // snapshot has a higher revision and gets replayed
+        long revision = currentRevision(environmentId);
+        FlagCheckpoint checkpoint = mongoTemplate.insert(FlagCheckpoint.builder()
+                .environmentId(environmentId)
+                .revision(revision)
+                .complete(false)
+                .createdAt(Instant.now())
+                .build());
+
+        long count = 0;
+        List<FlagCheckpointEntry> entries = new ArrayList<>(flushBatchSize);
+        Query query = new Query(Criteria.where("environmentId").is(environmentId)).cursorBatchSize(flushBatchSize);
+        try (Stream<Flag> flags = mongoTemplate.stream(query, Flag.class)) {
+            for (Flag flag : (Iterable<Flag>) flags::iterator) {
+                entries.add(FlagCheckpointEntry.builder().checkpointId(checkpoint.getId()).flag(flag).build());
+                if (entries.size() == flushBatchSize) {
+                    count += entries.size();
+                    mongoTemplate.insert(entries, FlagCheckpointEntry.class);
+                    entries.clear();
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            count += entries.size();
+            mongoTemplate.insert(entries, FlagCheckpointEntry.class);
+        }
+
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(checkpoint.getId())),
+                new Update().set("complete", true).set("flagCount", count),
+                FlagCheckpoint.class);
+        checkpoints.increment();
+    }
+
+}
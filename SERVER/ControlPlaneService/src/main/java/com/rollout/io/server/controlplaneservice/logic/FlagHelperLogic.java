@@ -3,17 +3,27 @@ package com.rollout.io.server.controlplaneservice.logic;
 import com.rollout.io.server.controlplaneservice.entity.Flag;
 import com.rollout.io.server.controlplaneservice.entity.FlagType;
 import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
 @Component
 @RequiredArgsConstructor
 public class FlagHelperLogic {
 
+    private static final int MAX_TAGS = 20;
+    private static final Pattern TAG_PATTERN = Pattern.compile("[a-z0-9][a-z0-9._-]{0,63}");
+
     private final ObjectMapper objectMapper;
+    private final JsonSchemaCache jsonSchemaCache;
 
     public void validateFlagValue(Flag flag) {
         FlagType type = flag.getType();
@@ -68,13 +78,13 @@ public class FlagHelperLogic {
                         // Already valid map/list, map is fine
                         break;
                     } else if (value instanceof String) {
-                        // Attempt to parse string as JSON and convert to standard Java objects
+                        // Parse straight into standard Java objects; a tree in between would mean parsing twice
                         try {
-                            JsonNode node = objectMapper.readTree((String) value);
-                            if (node == null || node.isNull()) {
-                                throw new IllegalArgumentException("Top level JSON cannot be null");
+                            Object parsed = objectMapper.readValue((String) value, Object.class);
+                            if (!(parsed instanceof java.util.Map || parsed instanceof java.util.List)) {
+                                throw new IllegalArgumentException("Top level JSON must be an object or array");
                             }
-                            flag.setValue(objectMapper.convertValue(node, Object.class));
+                            flag.setValue(parsed);
                         } catch (Exception e) {
                             throw new IllegalArgumentException("String value is not a valid JSON structure");
                         }
@@ -86,6 +96,41 @@ public class FlagHelperLogic {
         } catch (Exception e) {
             throw new RolloutError("Invalid value for flag type " + type, HttpStatus.BAD_REQUEST);
         }
-        
+
+        if (flag.getSchema() != null) {
+            if (type != FlagType.JSON) {
+                throw new RolloutError("Only JSON flags can declare a schema", HttpStatus.BAD_REQUEST);
+            }
+            if (flag.getSchemaHash() == null) {
+                flag.setSchemaHash(jsonSchemaCache.hash(flag.getSchema()));
+            }
+            jsonSchemaCache.validate(flag.getSchema(), flag.getSchemaHash(), flag.getValue());
+        }
+    }
+
+    // Tags are matched case-insensitively, so they are stored lowercase and deduplicated
+    public List<String> normalizeTags(List<String> tags) {
+        if (tags == null) {
+            return null;
+        }
+        if (tags.size() > MAX_TAGS) {
+            throw new RolloutError("A flag can have at most " + MAX_TAGS + " tags", HttpStatus.BAD_REQUEST);
+        }
+
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String tag : tags) {
+            String value = tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+            if (!TAG_PATTERN.matcher(value).matches()) {
+                throw new RolloutError("Invalid tag '" + tag + "': use up to 64 letters, digits, '.', '_' or '-'", HttpStatus.BAD_REQUEST);
+            }
+            normalized.add(value);
+        }
+        return new ArrayList<>(normalized);
+    }
+
+    public void validateRolloutPercentage(Integer rolloutPercentage) {
+        if (rolloutPercentage != null && (rolloutPercentage < 0 || rolloutPercentage > 100)) {
+            throw new RolloutError("Rollout percentage must be between 0 and 100", HttpStatus.BAD_REQUEST);
+        }
     }
 }
@@ -0,0 +1,199 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpoint;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JsonPatch;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.objects.JsonPatchOperation;
+import com.rollout.io.server.controlplaneservice.objects.RollbackResult;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import com.rollout.io.server.controlplaneservice.service.FlagHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class FlagHistoryServiceLogic implements FlagHistoryService {
+
+    private static final int MAX_HISTORY_PAGE = 500;
+    private static final TypeReference<List<JsonPatchOperation>> PATCH_OPERATIONS = new TypeReference<>() { };
+
+    private final MongoTemplate mongoTemplate;
+    private final EnvironmentService environmentService;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final FlagValueBlobStore flagValueBlobStore;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public List<FlagRevision> getHistory(Jwt jwt, String environmentId, Long beforeRevision, int limit) {
+        environmentService.getEnvironmentById(jwt, environmentId);
+
+        Criteria criteria = Criteria.where("environmentId").is(environmentId);
+        if (beforeRevision != null) {
+            criteria = criteria.and("revision").lt(beforeRevision);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "revision"))
+                .limit(Math.min(Math.max(limit, 1), MAX_HISTORY_PAGE));
+        return mongoTemplate.find(query, FlagRevision.class);
+    }
+
+    @Override
+    public RollbackResult rollbackEnvironment(Jwt jwt, String environmentId, Long revision, Instant timestamp) {
+        environmentService.getEnvironmentById(jwt, environmentId);
+        String uid = JwtHelper.getUidFromJwt(jwt);
+
+        if (revision == null && timestamp == null) {
+            throw new RolloutError("Either revision or timestamp is required", HttpStatus.BAD_REQUEST);
+        }
+        long targetRevision = revision != null ? revision : flagChangeRecorder.revisionAt(environmentId, timestamp);
+
+        // Start from the nearest checkpoint so the replay only covers changes since then
+        FlagCheckpoint checkpoint = mongoTemplate.findOne(new Query(Criteria.where("environmentId").is(environmentId)
+                        .and("complete").is(true)
+                        .and("revision").lte(targetRevision))
+                        .with(Sort.by(Sort.Direction.DESC, "revision")),
+                FlagCheckpoint.class);
+        if (checkpoint == null) {
+            throw new RolloutError("No history is available for this environment at the requested point", HttpStatus.BAD_REQUEST);
+        }
+
+        Map<String, Flag> target = new HashMap<>();
+        try (Stream<FlagCheckpointEntry> entries = mongoTemplate.stream(
+                new Query(Criteria.where("checkpointId").is(checkpoint.getId())), FlagCheckpointEntry.class)) {
+            entries.forEach(entry -> target.put(entry.getFlag().getKey(), entry.getFlag()));
+        }
+
+        long replayed = 0;
+        Query replayQuery = new Query(Criteria.where("environmentId").is(environmentId)
+                .and("revision").gt(checkpoint.getRevision()).lte(targetRevision))
+                .with(Sort.by(Sort.Direction.ASC, "revision"));
+        try (Stream<FlagRevision> changes = mongoTemplate.stream(replayQuery, FlagRevision.class)) {
+            for (FlagRevision change : (Iterable<FlagRevision>) changes::iterator) {
+                if (change.getChangeType() == FlagChangeType.DELETE) {
+                    target.remove(change.getKey());
+                } else if (change.getChangeType() == FlagChangeType.PATCH) {
+                    target.put(change.getKey(), replayPatch(target.get(change.getKey()), change));
+                } else {
+                    target.put(change.getKey(), change.getFlag());
+                }
+                replayed++;
+            }
+        }
+
+        return apply(environmentId, targetRevision, target, replayed, uid);
+    }
+
+    private Flag replayPatch(Flag previous, FlagRevision change) {
+        if (previous == null) {
+            throw new RolloutError("History has no state for flag '" + change.getKey() + "' to apply its patch to", HttpStatus.CONFLICT);
+        }
+        // A change can land in the checkpoint it follows, as checkpoints read flags after taking their revision
+        Flag patched = change.getFlag();
+        if (previous.getVersion() != null && patched.getVersion() != null && previous.getVersion() >= patched.getVersion()) {
+            return previous;
+        }
+        List<JsonPatchOperation> operations = objectMapper.convertValue(change.getPatch(), PATCH_OPERATIONS);
+        patched.setValue(objectMapper.convertValue(JsonPatch.apply(objectMapper.valueToTree(previous.getValue()), operations), Object.class));
+        return patched;
+    }
+
+    private RollbackResult apply(String environmentId, long targetRevision, Map<String, Flag> target, long replayed, String uid) {
+        Map<String, Flag> current = new HashMap<>();
+        try (Stream<Flag> flags = mongoTemplate.stream(new Query(Criteria.where("environmentId").is(environmentId)), Flag.class)) {
+            flags.forEach(flag -> current.put(flag.getKey(), flag));
+        }
+
+        Instant now = Instant.now();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Flag.class);
+        List<Flag> restoredFlags = new ArrayList<>();
+        List<Flag> deletedFlags = new ArrayList<>();
+        long unchanged = 0;
+
+        for (Flag existing : current.values()) {
+            if (!target.containsKey(existing.getKey())) {
+                bulkOps.remove(new Query(Criteria.where("_id").is(existing.getId())));
+                deletedFlags.add(existing);
+            }
+        }
+
+        for (Flag snapshot : target.values()) {
+            Flag existing = current.get(snapshot.getKey());
+            if (existing != null && sameState(existing, snapshot)) {
+                unchanged++;
+                continue;
+            }
+
+            int version = (existing != null && existing.getVersion() != null ? existing.getVersion() : 0) + 1;
+            Update update = new Update()
+                            .setOnInsert("_id", ObjectId.isValid(snapshot.getId()) ? new ObjectId(snapshot.getId()) : snapshot.getId())
+                            .setOnInsert("createdByUid", snapshot.getCreatedByUid())
+                            .setOnInsert("createdAt", snapshot.getCreatedAt())
+                            .set("displayName", snapshot.getDisplayName())
+                            .set("description", snapshot.getDescription())
+                            .set("type", snapshot.getType())
+                            .set("category", snapshot.getCategory())
+                            .set("enabled", snapshot.getEnabled())
+                            .set("schema", snapshot.getSchema())
+                            .set("schemaHash", snapshot.getSchemaHash())
+                            .set("rolloutPercentage", snapshot.getRolloutPercentage())
+                            .set("tags", snapshot.getTags())
+                            .set("dependency", snapshot.getDependency())
+                            .set("searchName", SearchIndexer.searchName(snapshot))
+                            .set("searchGrams", SearchIndexer.searchGrams(snapshot))
+                            .set("version", version)
+                            .set("updatedAt", now);
+            flagValueBlobStore.valueFields(snapshot).forEach(update::set);
+            bulkOps.upsert(new Query(Criteria.where("environmentId").is(environmentId).and("key").is(snapshot.getKey())), update);
+
+            snapshot.setVersion(version);
+            snapshot.setUpdatedAt(now);
+            restoredFlags.add(snapshot);
+        }
+
+        if (!restoredFlags.isEmpty() || !deletedFlags.isEmpty()) {
+            bulkOps.execute();
+        }
+
+        // The rollback itself is part of the history, so it can be rolled back as well
+        restoredFlags.forEach(flag -> flagChangeRecorder.record(FlagChangeType.RESTORE, flag, uid));
+        deletedFlags.forEach(flag -> flagChangeRecorder.record(FlagChangeType.DELETE, flag, uid));
+
+        return new RollbackResult(environmentId, targetRevision, restoredFlags.size(), deletedFlags.size(), unchanged, replayed);
+    }
+
+    private boolean sameState(Flag a, Flag b) {
+        return Objects.equals(a.getEnabled(), b.getEnabled())
+                && Objects.equals(a.getValue(), b.getValue())
+                && Objects.equals(a.getSchema(), b.getSchema())
+                && Objects.equals(a.getRolloutPercentage(), b.getRolloutPercentage())
+                && Objects.equals(a.getTags(), b.getTags())
+                && Objects.equals(a.getDisplayName(), b.getDisplayName())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getDependency(), b.getDependency());
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import com.rollout.io.server.controlplaneservice.entity.ScheduleStatus;
+import com.rollout.io.server.controlplaneservice.entity.ScheduledAction;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.repository.FlagScheduleRepository;
+import com.rollout.io.server.controlplaneservice.service.CoreFlagService;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import com.rollout.io.server.controlplaneservice.service.FlagScheduleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class FlagScheduleServiceLogic implements FlagScheduleService {
+
+    private final FlagScheduleRepository flagScheduleRepository;
+    private final MongoTemplate mongoTemplate;
+    private final CoreFlagService coreFlagService;
+    private final EnvironmentService environmentService;
+    private final FlagHelperLogic flagHelperLogic;
+    private final FlagScheduler flagScheduler;
+
+    @Override
+    public FlagSchedule createSchedule(Jwt jwt, String flagId, FlagSchedule request) {
+        Flag flag = coreFlagService.getCoreFlag(jwt, flagId); // Handles access check
+
+        if (request.getAction() == null) {
+            throw new RolloutError("Schedule action cannot be null", HttpStatus.BAD_REQUEST);
+        }
+        if (request.getFireAt() == null || !request.getFireAt().isAfter(Instant.now())) {
+            throw new RolloutError("Schedule time must be in the future", HttpStatus.BAD_REQUEST);
+        }
+
+        Object value = null;
+        if (request.getAction() == ScheduledAction.SET_VALUE) {
+            // Validate against the flag type now, not when it fires
+            Flag candidate = Flag.builder().type(flag.getType()).value(request.getValue()).build();
+            flagHelperLogic.validateFlagValue(candidate);
+            value = candidate.getValue();
+        }
+
+        FlagSchedule schedule = flagScheduleRepository.save(FlagSchedule.builder()
+                .flagId(flag.getId())
+                .environmentId(flag.getEnvironmentId())
+                .action(request.getAction())
+                .value(value)
+                .fireAt(request.getFireAt())
+                .status(ScheduleStatus.PENDING)
+                .createdByUid(JwtHelper.getUidFromJwt(jwt))
+                .createdAt(Instant.now())
+                .build());
+
+        flagScheduler.offer(schedule);
+        return schedule;
+    }
+
+    @Override
+    public List<FlagSchedule> getSchedules(Jwt jwt, String flagId) {
+        coreFlagService.getCoreFlag(jwt, flagId);
+        return flagScheduleRepository.findAllByFlagIdOrderByFireAtAsc(flagId);
+    }
+
+    @Override
+    public FlagSchedule cancelSchedule(Jwt jwt, String scheduleId) {
+        FlagSchedule schedule = flagScheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new RolloutError("Schedule not found", HttpStatus.NOT_FOUND));
+        environmentService.getEnvironmentById(jwt, schedule.getEnvironmentId());
+
+        // Only a schedule nobody has claimed yet can be cancelled
+        FlagSchedule cancelled = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(scheduleId).and("status").is(ScheduleStatus.PENDING)),
+                new Update().set("status", ScheduleStatus.CANCELLED),
+                FindAndModifyOptions.options().returnNew(true),
+                FlagSchedule.class);
+
+        if (cancelled == null) {
+            throw new RolloutError("Schedule has already fired or was cancelled", HttpStatus.CONFLICT);
+        }
+        return cancelled;
+    }
+
+}
@@ -0,0 +1,239 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import com.rollout.io.server.controlplaneservice.entity.ScheduleStatus;
+import com.rollout.io.server.controlplaneservice.entity.ScheduledAction;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.HierarchicalTimingWheel;
+import com.rollout.io.server.controlplaneservice.repository.FlagRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Fires scheduled flag changes from an in-memory timing wheel; Mongo stays the source of truth
+@Slf4j
+@Component
+public class FlagScheduler {
+
+    private static final String LEASE_NAME = "flag-scheduler";
+
+    private final MongoTemplate mongoTemplate;
+    private final FlagRepository flagRepository;
+    private final FlagHelperLogic flagHelperLogic;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final LeaseManager leaseManager;
+    private final long tickMs;
+    private final long horizonMs;
+    private final Duration loaderLease;
+    private final Duration fireLease = Duration.ofSeconds(30);
+
+    // Only the ticker thread touches the wheel; other threads hand schedules over through the queue
+    private final HierarchicalTimingWheel<String> wheel;
+    private final Queue<PendingSchedule> incoming = new ConcurrentLinkedQueue<>();
+    private final Set<String> tracked = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger wheelSize = new AtomicInteger();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flag-scheduler-ticker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService workers;
+
+    private final Timer fireLatency;
+    private final Counter fired;
+    private final Counter failed;
+
+    public FlagScheduler(MongoTemplate mongoTemplate,
+                         FlagRepository flagRepository,
+                         FlagHelperLogic flagHelperLogic,
+                         FlagChangeRecorder flagChangeRecorder,
+                         LeaseManager leaseManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${rollout.schedules.tick-ms:100}") long tickMs,
+                         @Value("${rollout.schedules.wheel-size:512}") int wheelSlots,
+                         @Value("${rollout.schedules.horizon-ms:60000}") long horizonMs,
+                         @Value("${rollout.schedules.load-interval-ms:10000}") long loadIntervalMs,
+                         @Value("${rollout.schedules.workers:4}") int workers) {
+        this.mongoTemplate = mongoTemplate;
+        this.flagRepository = flagRepository;
+        this.flagHelperLogic = flagHelperLogic;
+        this.flagChangeRecorder = flagChangeRecorder;
+        this.leaseManager = leaseManager;
+        this.tickMs = tickMs;
+        this.horizonMs = horizonMs;
+        this.loaderLease = Duration.ofMillis(loadIntervalMs * 3);
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, wheelSlots, System.currentTimeMillis());
+        this.workers = Executors.newFixedThreadPool(workers);
+
+        this.fireLatency = Timer.builder("rollout.schedules.fire.latency")
+                .description("Delay between a schedule's fireAt and the flag change being applied")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fired = meterRegistry.counter("rollout.schedules.completed", "result", "fired");
+        this.failed = meterRegistry.counter("rollout.schedules.completed", "result", "failed");
+        meterRegistry.gauge("rollout.schedules.wheel.size", wheelSize);
+    }
+
+    @PostConstruct
+    void start() {
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+        workers.shutdown();
+    }
+
+    // Schedules beyond the horizon are left in Mongo until the loader reaches them
+    public void offer(FlagSchedule schedule) {
+        long fireAtMs = schedule.getFireAt().toEpochMilli();
+        if (fireAtMs <= System.currentTimeMillis() + horizonMs && tracked.add(schedule.getId())) {
+            incoming.add(new PendingSchedule(schedule.getId(), fireAtMs));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rollout.schedules.load-interval-ms:10000}")
+    public void loadUpcoming() {
+        // One replica feeds the horizon window; the per-schedule claim still guarantees a single apply
+        if (!leaseManager.tryAcquire(LEASE_NAME, loaderLease)) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(ScheduleStatus.PENDING).and("fireAt").lte(now.plusMillis(horizonMs)),
+                Criteria.where("status").is(ScheduleStatus.FIRING).and("leaseUntil").lt(now)));
+        query.fields().include("_id", "fireAt");
+
+        try (Stream<FlagSchedule> schedules = mongoTemplate.stream(query, FlagSchedule.class)) {
+            schedules.forEach(this::offer);
+        }
+    }
+
+    private void tick() {
+        try {
+            PendingSchedule pending;
+            while ((pending = incoming.poll()) != null) {
+                if (!wheel.add(pending.fireAtMs(), pending.id())) {
+                    dispatch(pending.id());
+                }
+            }
+            wheel.advance(System.currentTimeMillis(), this::dispatch);
+            wheelSize.set(wheel.size());
+        } catch (RuntimeException e) {
+            log.error("Flag scheduler tick failed", e);
+        }
+    }
+
+    private void dispatch(String scheduleId) {
+        workers.execute(() -> {
+            try {
+                fire(scheduleId);
+            } catch (RuntimeException e) {
+                log.error("Failed to fire schedule {}", scheduleId, e);
+            } finally {
+                tracked.remove(scheduleId);
+            }
+        });
+    }
+
+    private void fire(String scheduleId) {
+        Instant now = Instant.now();
+        FlagSchedule schedule = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(scheduleId).orOperator(
+                        Criteria.where("status").is(ScheduleStatus.PENDING),
+                        Criteria.where("status").is(ScheduleStatus.FIRING).and("leaseUntil").lt(now))),
+                new Update()
+                        .set("status", ScheduleStatus.FIRING)
+                        .set("leaseOwner", leaseManager.getNodeId())
+                        .set("leaseUntil", now.plus(fireLease)),
+                FindAndModifyOptions.options().returnNew(true),
+                FlagSchedule.class);
+
+        if (schedule == null) {
+            return; // cancelled, or claimed by another replica
+        }
+
+        try {
+            apply(schedule);
+            complete(schedule, ScheduleStatus.FIRED, null);
+            fired.increment();
+        } catch (RolloutError e) {
+            complete(schedule, ScheduleStatus.FAILED, e.getMessage());
+            failed.increment();
+        }
+        fireLatency.record(Duration.between(schedule.getFireAt(), Instant.now()));
+    }
+
+    private void apply(FlagSchedule schedule) {
+        Flag flag = flagRepository.findById(schedule.getFlagId())
+                .orElseThrow(() -> new RolloutError("Flag no longer exists", HttpStatus.NOT_FOUND));
+
+        FlagChangeType changeType;
+        if (schedule.getAction() == ScheduledAction.SET_VALUE) {
+            if (Objects.equals(flag.getValue(), schedule.getValue())) {
+                return;
+            }
+            flag.setValue(schedule.getValue());
+            flagHelperLogic.validateFlagValue(flag);
+            changeType = FlagChangeType.UPDATE;
+        } else {
+            boolean enabled = schedule.getAction() == ScheduledAction.ENABLE;
+            if (Boolean.valueOf(enabled).equals(flag.getEnabled())) {
+                return;
+            }
+            flag.setEnabled(enabled);
+            changeType = FlagChangeType.TOGGLE;
+        }
+
+        flag.setVersion(flag.getVersion() + 1);
+        flag.setUpdatedAt(Instant.now());
+        Flag savedFlag = flagRepository.save(flag);
+        flagChangeRecorder.record(changeType, savedFlag, schedule.getCreatedByUid());
+    }
+
+    private void complete(FlagSchedule schedule, ScheduleStatus status, String failureReason) {
+        Update update = new Update()
+                .set("status", status)
+                .set("firedAt", Instant.now())
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        if (failureReason != null) {
+            update.set("failureReason", failureReason);
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(schedule.getId())), update, FlagSchedule.class);
+    }
+
+    private record PendingSchedule(String id, long fireAtMs) {
+    }
+
+}
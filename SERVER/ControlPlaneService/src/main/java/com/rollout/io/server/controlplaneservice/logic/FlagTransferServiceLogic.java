@@ -0,0 +1,198 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCategory;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.objects.FlagImportResult;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import com.rollout.io.server.controlplaneservice.service.FlagTransferService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class FlagTransferServiceLogic implements FlagTransferService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final EnvironmentService environmentService;
+    private final FlagHelperLogic flagHelperLogic;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    private final Counter exportedFlags;
+    private final Counter importedFlags;
+    private final Timer exportTimer;
+    private final Timer importTimer;
+
+    public FlagTransferServiceLogic(MongoTemplate mongoTemplate,
+                                    EnvironmentService environmentService,
+                                    FlagHelperLogic flagHelperLogic,
+                                    FlagChangeRecorder flagChangeRecorder,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${rollout.flags.transfer.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.environmentService = environmentService;
+        this.flagHelperLogic = flagHelperLogic;
+        this.flagChangeRecorder = flagChangeRecorder;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+
+        // Throughput = rate() of the counters, per-run cost from the timers
+        this.exportedFlags = meterRegistry.counter("rollout.flags.transfer", "direction", "export");
+        this.importedFlags = meterRegistry.counter("rollout.flags.transfer", "direction", "import");
+        this.exportTimer = meterRegistry.timer("rollout.flags.transfer.duration", "direction", "export");
+        this.importTimer = meterRegistry.timer("rollout.flags.transfer.duration", "direction", "import");
+    }
+
+    @Override
+    public StreamingResponseBody exportCoreFlags(Jwt jwt, String environmentId) {
+        // Access is checked on the request thread, before the response is committed
+        environmentService.getEnvironmentById(jwt, environmentId);
+
+        return out -> {
+            long start = System.nanoTime();
+            Query query = new Query(Criteria.where("environmentId").is(environmentId).and("category").is(FlagCategory.CORE))
+                    .cursorBatchSize(batchSize);
+
+            try (Stream<Flag> flags = mongoTemplate.stream(query, Flag.class);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                long written = 0;
+                for (Flag flag : (Iterable<Flag>) flags::iterator) {
+                    generator.writeObject(flag);
+                    generator.writeRaw('\n');
+                    if (++written % batchSize == 0) {
+                        generator.flush();
+                        exportedFlags.increment(batchSize);
+                    }
+                }
+                generator.flush();
+                exportedFlags.increment(written % batchSize);
+            } finally {
+                exportTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    @Override
+    public FlagImportResult importCoreFlags(Jwt jwt, String environmentId, InputStream body) {
+        environmentService.getEnvironmentById(jwt, environmentId);
+        String uid = JwtHelper.getUidFromJwt(jwt);
+
+        long start = System.nanoTime();
+        long[] totals = new long[3]; // imported, duplicates, failed
+        long rejected = 0;
+        long line = 0;
+        List<Flag> batch = new ArrayList<>(batchSize);
+
+        try (MappingIterator<Flag> flags = objectMapper.readerFor(Flag.class).readValues(body)) {
+            while (flags.hasNextValue()) {
+                line++;
+                Flag flag = flags.nextValue();
+
+                if (flag.getKey() == null || flag.getKey().isBlank()) {
+                    rejected++;
+                    continue;
+                }
+                try {
+                    flagHelperLogic.validateFlagValue(flag);
+                    flagHelperLogic.validateRolloutPercentage(flag.getRolloutPercentage());
+                    flag.setTags(flagHelperLogic.normalizeTags(flag.getTags()));
+                } catch (RolloutError e) {
+                    rejected++;
+                    continue;
+                }
+
+                Instant now = Instant.now();
+                flag.setId(null); // ids belong to the source environment
+                flag.setEnvironmentId(environmentId);
+                flag.setCategory(FlagCategory.CORE);
+                flag.setDependency(null);
+                flag.setVersion(1);
+                flag.setCreatedByUid(uid);
+                flag.setCreatedAt(now);
+                flag.setUpdatedAt(now);
+                if (flag.getEnabled() == null) {
+                    flag.setEnabled(false);
+                }
+
+                batch.add(flag);
+                if (batch.size() == batchSize) {
+                    flushBatch(batch, totals);
+                }
+            }
+            flushBatch(batch, totals);
+        } catch (IOException e) {
+            throw new RolloutError("Malformed NDJSON at line " + (line + 1) + " (" + totals[0] + " flags already imported)", HttpStatus.BAD_REQUEST);
+        } finally {
+            importTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (totals[0] > 0) {
+                flagChangeRecorder.checkpoint(environmentId);
+            }
+        }
+
+        return new FlagImportResult(totals[0], totals[1], rejected, totals[2], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void flushBatch(List<Flag> batch, long[] totals) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Unordered so a duplicate key only drops that document, not the rest of the batch
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Flag.class);
+        bulkOps.insert(batch);
+
+        int inserted;
+        int duplicates = 0;
+        try {
+            BulkWriteResult result = bulkOps.execute();
+            inserted = result.getInsertedCount();
+        } catch (BulkOperationException e) {
+            inserted = e.getResult().getInsertedCount();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() == DUPLICATE_KEY) {
+                    duplicates++;
+                } else {
+                    log.warn("Flag import write failed for key {}: {} ({})", batch.get(error.getIndex()).getKey(), error.getMessage(), error.getCode());
+                }
+            }
+        }
+
+        totals[0] += inserted;
+        totals[1] += duplicates;
+        totals[2] += batch.size() - inserted - duplicates;
+        importedFlags.increment(inserted);
+        batch.clear();
+    }
+
+}
@@ -0,0 +1,285 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.entity.FlagValueBlob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Moves large JSON flag values out of flag documents into gzip blobs addressed by their SHA-256, so identical
+// values copied across environments are stored once. Reads defer the value until it is used, then load it through a
+// small decoded cache.
+@Slf4j
+@Component
+public class FlagValueBlobStore implements BeforeSaveCallback<Object>, AfterConvertCallback<Object> {
+
+    private static final String LEASE_NAME = "flag-blob-sweeper";
+    private static final List<String> REFERENCES = List.of(
+            "flags:valueRef", "flag_history:flag.valueRef", "flag_checkpoint_entries:flag.valueRef");
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final LeaseManager leaseManager;
+    private final int thresholdBytes;
+    private final Duration gracePeriod;
+    private final Map<String, Object> decoded;
+
+    private final Counter stored;
+    private final Counter loaded;
+    private final Counter cacheHits;
+    private final Counter swept;
+
+    public FlagValueBlobStore(MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              LeaseManager leaseManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${rollout.flags.blobs.threshold-bytes:16384}") int thresholdBytes,
+                              @Value("${rollout.flags.blobs.cache-size:256}") int cacheSize,
+                              @Value("${rollout.flags.blobs.grace-hours:24}") long graceHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.leaseManager = leaseManager;
+        this.thresholdBytes = thresholdBytes;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.decoded = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > cacheSize;
+            }
+        });
+
+        this.stored = meterRegistry.counter("rollout.flags.blobs", "op", "store");
+        this.loaded = meterRegistry.counter("rollout.flags.blobs", "op", "load");
+        this.cacheHits = meterRegistry.counter("rollout.flags.blobs", "op", "cache-hit");
+        this.swept = meterRegistry.counter("rollout.flags.blobs", "op", "sweep");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        for (String reference : REFERENCES) {
+            String[] parts = reference.split(":");
+            mongoTemplate.indexOps(parts[0]).ensureIndex(new Index(parts[1], Sort.Direction.ASC).sparse());
+        }
+        mongoTemplate.indexOps(FlagValueBlob.class).ensureIndex(new Index("lastReferencedAt", Sort.Direction.ASC));
+    }
+
+    @Override
+    public Object onBeforeSave(Object entity, Document document, String collection) {
+        if (entity instanceof Flag) {
+            externalize(document);
+        } else if ((entity instanceof FlagRevision || entity instanceof FlagCheckpointEntry)
+                && document.get("flag") instanceof Document flag) {
+            externalize(flag);
+        }
+        return entity;
+    }
+
+    @Override
+    public Object onAfterConvert(Object entity, Document document, String collection) {
+        if (entity instanceof Flag flag) {
+            resolve(flag);
+        } else if (entity instanceof FlagRevision revision && revision.getFlag() != null) {
+            resolve(revision.getFlag());
+        } else if (entity instanceof FlagCheckpointEntry entry && entry.getFlag() != null) {
+            resolve(entry.getFlag());
+        }
+        return entity;
+    }
+
+    // Field values of a loaded flag; one backed by a blob points the copy at the same blob without loading it
+    public Map<String, Object> valueFields(Flag flag) {
+        if (flag.getValueRef() == null) {
+            return valueFields(flag.getValue());
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("value", null);
+        fields.put("valueRef", flag.getValueRef());
+        return fields;
+    }
+
+    // Field values for writes that go through Update rather than entity conversion (bulk upserts, CAS updates)
+    public Map<String, Object> valueFields(Object value) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        String reference = (value instanceof Map || value instanceof List) ? storeIfLarge(encode(value)) : null;
+        fields.put("value", reference == null ? value : null);
+        fields.put("valueRef", reference);
+        return fields;
+    }
+
+    private void externalize(Document flag) {
+        Object value = flag.get("value");
+        if (value == null && flag.get("valueRef") != null) {
+            return; // a blob-backed value that was never loaded keeps pointing at the same blob
+        }
+        String reference = (value instanceof Map || value instanceof List) ? storeIfLarge(encode(value)) : null;
+        if (reference != null) {
+            flag.remove("value");
+            flag.put("valueRef", reference);
+        } else {
+            flag.remove("valueRef"); // a value that shrank below the threshold goes back inline
+        }
+    }
+
+    private void resolve(Flag flag) {
+        String reference = flag.getValueRef();
+        if (reference != null) {
+            flag.deferValue(() -> load(reference));
+        }
+    }
+
+    private String storeIfLarge(byte[] json) {
+        if (json.length < thresholdBytes) {
+            return null;
+        }
+
+        String hash = sha256(json);
+        Instant now = Instant.now();
+        Update update = new Update()
+                .setOnInsert("data", gzip(json))
+                .setOnInsert("size", json.length)
+                .setOnInsert("createdAt", now)
+                .set("lastReferencedAt", now);
+        try {
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(hash)), update, FlagValueBlob.class);
+        } catch (DuplicateKeyException e) {
+            // Two writers stored the same content at once; the other insert won and holds identical bytes
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(hash)), new Update().set("lastReferencedAt", now), FlagValueBlob.class);
+        }
+        stored.increment();
+        return hash;
+    }
+
+    private Object load(String hash) {
+        Object value = decoded.get(hash);
+        if (value != null) {
+            cacheHits.increment();
+            return value;
+        }
+
+        FlagValueBlob blob = mongoTemplate.findById(hash, FlagValueBlob.class);
+        if (blob == null) {
+            // Serving null would silently hand SDKs an empty value; the read fails instead
+            log.error("Flag value blob {} is missing", hash);
+            throw new IllegalStateException("Flag value blob " + hash + " is missing");
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(blob.getData()))) {
+            // Cached values are shared between flags, so they are frozen before anyone can see them
+            value = freeze(objectMapper.readValue(in, Object.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt flag value blob " + hash, e);
+        }
+        loaded.increment();
+        decoded.put(hash, value);
+        return value;
+    }
+
+    @Scheduled(fixedDelayString = "${rollout.flags.blobs.sweep-ms:3600000}", initialDelayString = "${rollout.flags.blobs.sweep-ms:3600000}")
+    public void sweep() {
+        if (!leaseManager.tryAcquire(LEASE_NAME, Duration.ofMinutes(30))) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        Query candidates = new Query(Criteria.where("lastReferencedAt").lt(cutoff));
+        candidates.fields().include("_id");
+
+        try (Stream<FlagValueBlob> blobs = mongoTemplate.stream(candidates, FlagValueBlob.class)) {
+            for (FlagValueBlob blob : (Iterable<FlagValueBlob>) blobs::iterator) {
+                if (isReferenced(blob.getId())) {
+                    continue;
+                }
+                // Re-checks the cutoff so a writer that just pointed a flag at this blob keeps it alive
+                long deleted = mongoTemplate.remove(new Query(Criteria.where("_id").is(blob.getId())
+                        .and("lastReferencedAt").lt(cutoff)), FlagValueBlob.class).getDeletedCount();
+                swept.increment(deleted);
+            }
+        }
+    }
+
+    private boolean isReferenced(String hash) {
+        for (String reference : REFERENCES) {
+            String[] parts = reference.split(":");
+            if (mongoTemplate.exists(new Query(Criteria.where(parts[1]).is(hash)), parts[0])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object freeze(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> frozen = new LinkedHashMap<>();
+            ((Map<String, Object>) map).forEach((key, item) -> frozen.put(key, freeze(item)));
+            return Collections.unmodifiableMap(frozen);
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(FlagValueBlobStore::freeze).toList();
+        }
+        return value;
+    }
+
+}
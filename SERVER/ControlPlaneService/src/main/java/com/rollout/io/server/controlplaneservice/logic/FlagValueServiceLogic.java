@@ -0,0 +1,248 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCategory;
+import com.rollout.io.server.controlplaneservice.entity.FlagType;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JsonPatch;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.objects.JsonPatchOperation;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import com.rollout.io.server.controlplaneservice.service.FlagValueService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class FlagValueServiceLogic implements FlagValueService {
+
+    private static final TypeReference<List<Map<String, Object>>> PATCH_ENTRIES = new TypeReference<>() { };
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final EnvironmentService environmentService;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final JsonSchemaCache jsonSchemaCache;
+    private final FlagValueBlobStore flagValueBlobStore;
+    private final Counter inPlacePatches;
+    private final Counter rewrittenPatches;
+
+    public FlagValueServiceLogic(MongoTemplate mongoTemplate,
+                                 ObjectMapper objectMapper,
+                                 EnvironmentService environmentService,
+                                 FlagChangeRecorder flagChangeRecorder,
+                                 JsonSchemaCache jsonSchemaCache,
+                                 FlagValueBlobStore flagValueBlobStore,
+                                 MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.environmentService = environmentService;
+        this.flagChangeRecorder = flagChangeRecorder;
+        this.jsonSchemaCache = jsonSchemaCache;
+        this.flagValueBlobStore = flagValueBlobStore;
+        this.inPlacePatches = meterRegistry.counter("rollout.flags.patches", "mode", "in-place");
+        this.rewrittenPatches = meterRegistry.counter("rollout.flags.patches", "mode", "rewrite");
+    }
+
+    @Override
+    public Flag patchCoreFlagValue(Jwt jwt, String flagId, List<JsonPatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new RolloutError("JSON Patch must contain at least one operation", HttpStatus.BAD_REQUEST);
+        }
+
+        // The access check only needs the header; the value itself may be large
+        Flag header = mongoTemplate.findOne(headerOnly(new Query(Criteria.where("_id").is(flagId))), Flag.class);
+        if (header == null) {
+            throw new RolloutError("Flag not found", HttpStatus.NOT_FOUND);
+        }
+        environmentService.getEnvironmentById(jwt, header.getEnvironmentId());
+
+        if (header.getCategory() != FlagCategory.CORE || header.getType() != FlagType.JSON) {
+            throw new RolloutError("JSON Patch can only be applied to JSON core flags", HttpStatus.BAD_REQUEST);
+        }
+
+        // A schema constrains the document as a whole, so schema-bound values are always validated in full
+        Flag patched = header.getSchema() == null ? patchInPlace(header, operations) : null;
+        if (patched != null) {
+            inPlacePatches.increment();
+        } else {
+            patched = patchByRewrite(flagId, operations);
+            rewrittenPatches.increment();
+        }
+
+        flagChangeRecorder.recordPatch(patched, objectMapper.convertValue(operations, PATCH_ENTRIES), JwtHelper.getUidFromJwt(jwt));
+        return patched;
+    }
+
+    @Override
+    public JsonNode getCoreFlagValue(Jwt jwt, String flagId, String pointer) {
+        JsonPointer path = JsonPatch.pointer(pointer == null ? "" : pointer);
+
+        // Mongo projects the deepest prefix it can address by field name; array indexes are resolved in memory
+        StringBuilder projected = new StringBuilder("value");
+        for (String segment : JsonPatch.segments(path)) {
+            if (segment.isEmpty() || segment.contains(".") || segment.startsWith("$") || JsonPatch.isArrayIndex(segment)) {
+                break;
+            }
+            projected.append('.').append(segment);
+        }
+
+        Query query = new Query(Criteria.where("_id").is(flagId));
+        // A blob-backed value is loaded whole, so the blob reference rides along with the projection
+        query.fields().include("environmentId", "valueRef", projected.toString());
+        Flag flag = mongoTemplate.findOne(query, Flag.class);
+        if (flag == null) {
+            throw new RolloutError("Flag not found", HttpStatus.NOT_FOUND);
+        }
+        environmentService.getEnvironmentById(jwt, flag.getEnvironmentId());
+
+        JsonNode node = objectMapper.valueToTree(flag.getValue()).at(path);
+        if (node.isMissingNode()) {
+            throw new RolloutError("No value at '" + path + "'", HttpStatus.NOT_FOUND);
+        }
+        return node;
+    }
+
+    // Translates add/replace/remove on named members into one conditional $set/$unset, so neither side moves the
+    // whole document. Returns null when the patch needs the full document, or when the preconditions no longer hold.
+    private Flag patchInPlace(Flag header, List<JsonPatchOperation> operations) {
+        Map<String, Boolean> conditions = new LinkedHashMap<>(); // path -> must be an object (true) or only exist
+        List<String> targets = new ArrayList<>();
+        Update update = new Update();
+
+        for (JsonPatchOperation operation : operations) {
+            if (operation.getOp() == null || operation.getPath() == null) {
+                return null;
+            }
+            JsonPointer path = JsonPatch.pointer(operation.getPath());
+            // Mongo treats a numeric segment as an array position, where add must insert and remove must close
+            // the gap; neither $set nor $unset does that, so anything that may address an array is rewritten
+            if (JsonPatch.segments(path).stream().anyMatch(JsonPatch::isArrayIndex)) {
+                return null;
+            }
+            String target = path.matches() ? null : JsonPatch.mongoPath("value", path);
+            String parent = target == null ? null : JsonPatch.mongoPath("value", path.head());
+            if (target == null || parent == null || overlaps(targets, target)) {
+                return null;
+            }
+            targets.add(target);
+
+            switch (operation.getOp()) {
+                case ADD -> {
+                    if (operation.getValue() == null) {
+                        return null;
+                    }
+                    conditions.put(parent, true);
+                    update.set(target, objectMapper.convertValue(operation.getValue(), Object.class));
+                }
+                case REPLACE -> {
+                    if (operation.getValue() == null) {
+                        return null;
+                    }
+                    conditions.put(target, false);
+                    update.set(target, objectMapper.convertValue(operation.getValue(), Object.class));
+                }
+                case REMOVE -> {
+                    conditions.put(parent, true);
+                    conditions.put(target, false);
+                    update.unset(target);
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        // Blob-backed values have no inline document to patch and go through the rewrite path
+        Criteria criteria = Criteria.where("_id").is(header.getId()).and("version").is(header.getVersion())
+                .and("valueRef").is(null);
+        List<Criteria> preconditions = new ArrayList<>();
+        conditions.forEach((path, mustBeObject) -> {
+            if (mustBeObject) {
+                // $type also matches an array holding an object, so arrays are excluded explicitly
+                preconditions.add(Criteria.where(path).type(JsonSchemaObject.Type.OBJECT));
+                preconditions.add(Criteria.where(path).not().type(JsonSchemaObject.Type.ARRAY));
+            } else {
+                preconditions.add(Criteria.where(path).exists(true));
+            }
+        });
+        criteria.andOperator(preconditions);
+
+        try {
+            return mongoTemplate.findAndModify(headerOnly(new Query(criteria)),
+                    update.inc("version", 1).set("updatedAt", Instant.now()),
+                    FindAndModifyOptions.options().returnNew(true),
+                    Flag.class);
+        } catch (DataAccessException e) {
+            // Dotted paths through arrays can match the filter yet be rejected by the update
+            return null;
+        }
+    }
+
+    private Flag patchByRewrite(String flagId, List<JsonPatchOperation> operations) {
+        Flag flag = mongoTemplate.findById(flagId, Flag.class);
+        if (flag == null) {
+            throw new RolloutError("Flag not found", HttpStatus.NOT_FOUND);
+        }
+
+        JsonNode patched = JsonPatch.apply(objectMapper.valueToTree(flag.getValue()), operations);
+        if (!patched.isContainerNode()) {
+            throw new RolloutError("JSON flag value must be a valid JSON object or array", HttpStatus.BAD_REQUEST);
+        }
+        Object value = objectMapper.convertValue(patched, Object.class);
+        if (flag.getSchema() != null) {
+            jsonSchemaCache.validate(flag.getSchema(), flag.getSchemaHash(), value);
+        }
+
+        Update update = new Update()
+                .inc("version", 1)
+                .set("updatedAt", Instant.now());
+        flagValueBlobStore.valueFields(value).forEach(update::set);
+
+        Flag updated = mongoTemplate.findAndModify(
+                headerOnly(new Query(Criteria.where("_id").is(flagId).and("version").is(flag.getVersion()))),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Flag.class);
+        if (updated == null) {
+            throw new RolloutError("Flag was modified concurrently, retry the patch", HttpStatus.CONFLICT);
+        }
+        return updated;
+    }
+
+    // Callers already hold the patch; echoing the whole value back would move the document this path avoids moving
+    private Query headerOnly(Query query) {
+        query.fields().exclude("value").exclude("valueRef");
+        return query;
+    }
+
+    // Mongo rejects an update touching a path and one of its ancestors, and RFC 6902 order would matter there anyway
+    private boolean overlaps(List<String> targets, String target) {
+        for (String other : targets) {
+            if (other.equals(target) || other.startsWith(target + ".") || target.startsWith(other + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
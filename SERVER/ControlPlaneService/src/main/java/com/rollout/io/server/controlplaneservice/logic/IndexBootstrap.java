@@ -0,0 +1,79 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.DeletionJob;
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpoint;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import com.rollout.io.server.controlplaneservice.entity.Project;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Automatic index creation is off, so the annotated indexes of every collection are created here explicitly
+@Slf4j
+@Component
+public class IndexBootstrap {
+
+    private static final List<Class<?>> INDEXED_TYPES = List.of(
+            Project.class,
+            Environment.class,
+            Flag.class,
+            FlagRevision.class,
+            FlagCheckpoint.class,
+            FlagCheckpointEntry.class,
+            DeletionJob.class,
+            FlagSchedule.class,
+            RolloutPlan.class);
+
+    // Indexes earlier releases created that no query uses any more; each one still costs every write
+    private static final Map<Class<?>, List<String>> RETIRED_INDEXES = Map.of(
+            Flag.class, List.of("env_flag_tags")); // tag filters are applied to the in-memory SDK snapshot
+
+    private final MongoTemplate mongoTemplate;
+
+    public IndexBootstrap(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Ahead of the search backfill, so the unique indexes are in place before it rewrites documents
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> type : INDEXED_TYPES) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    // Existing data can conflict with a unique index; the service still works without it
+                    log.warn("Could not create index {} on {}", index.getIndexKeys(), type.getSimpleName(), e);
+                }
+            }
+        }
+
+        RETIRED_INDEXES.forEach((type, names) -> {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            indexOps.getIndexInfo().stream()
+                    .filter(info -> names.contains(info.getName()))
+                    .forEach(info -> {
+                        indexOps.dropIndex(info.getName());
+                        log.info("Dropped unused index {} on {}", info.getName(), type.getSimpleName());
+                    });
+        });
+    }
+
+}
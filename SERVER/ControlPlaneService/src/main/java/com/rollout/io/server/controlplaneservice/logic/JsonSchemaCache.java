@@ -0,0 +1,83 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JsonSchema;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiled flag schemas keyed by the SHA-256 of their canonical JSON, so flags sharing a schema share one validator.
+// Flags store that hash next to the schema when it is set, so validating a value never serializes the schema again.
+@Component
+public class JsonSchemaCache {
+
+    private static final int MAX_REPORTED_ERRORS = 5;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper canonicalMapper;
+    private final int maxSchemas;
+    private final Map<String, JsonSchema> compiled = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter compilations;
+
+    public JsonSchemaCache(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${rollout.flags.schemas.cache-size:1000}") int maxSchemas) {
+        this.objectMapper = objectMapper;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.maxSchemas = maxSchemas;
+        this.hits = meterRegistry.counter("rollout.flags.schemas", "result", "hit");
+        this.compilations = meterRegistry.counter("rollout.flags.schemas", "result", "compile");
+        meterRegistry.gaugeMapSize("rollout.flags.schemas.cached", List.of(), compiled);
+    }
+
+    // The hash is recomputed only when absent, for schemas set before flags stored one
+    public JsonSchema get(Object schema, String schemaHash) {
+        String hash = schemaHash != null ? schemaHash : hash(schema);
+        JsonSchema cached = compiled.get(hash);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        // Compiling also rejects malformed schemas, before anything is cached
+        JsonSchema compiledSchema = JsonSchema.compile(objectMapper.valueToTree(schema), objectMapper);
+        compilations.increment();
+        if (compiled.size() >= maxSchemas) {
+            compiled.clear(); // schemas are few and cheap to recompile; a full reset keeps this simple
+        }
+        compiled.put(hash, compiledSchema);
+        return compiledSchema;
+    }
+
+    public void validate(Object schema, String schemaHash, Object value) {
+        List<String> errors = get(schema, schemaHash).validate(value, MAX_REPORTED_ERRORS);
+        if (!errors.isEmpty()) {
+            throw new RolloutError("Value does not match the flag schema: " + String.join("; ", errors), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    public String hash(Object schema) {
+        try {
+            byte[] canonical = canonicalMapper.writeValueAsBytes(schema);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (JsonProcessingException e) {
+            throw new RolloutError("Flag schema is not valid JSON", HttpStatus.BAD_REQUEST);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
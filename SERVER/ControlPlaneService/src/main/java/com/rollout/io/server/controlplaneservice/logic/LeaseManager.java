@@ -0,0 +1,46 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.ControllerLease;
+import lombok.Getter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+// Named leases in Mongo, used to pick a single replica for cluster-wide background loops
+@Component
+public class LeaseManager {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public LeaseManager(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Acquires or renews the lease; false while another replica holds it
+    public boolean tryAcquire(String name, Duration duration) {
+        Instant now = Instant.now();
+        Query query = new Query(Criteria.where("_id").is(name)
+                .orOperator(Criteria.where("owner").is(nodeId), Criteria.where("leaseUntil").lt(now)));
+        Update update = new Update().set("owner", nodeId).set("leaseUntil", now.plus(duration));
+
+        try {
+            return mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), ControllerLease.class) != null;
+        } catch (DuplicateKeyException e) {
+            // The upsert lost against a live lease held by someone else
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.OptionalDouble;
+
+// Reads guard values from the Prometheus instance that scrapes the services' Micrometer metrics
+@Slf4j
+@Component
+public class MetricGuardEvaluator {
+
+    private final RestClient restClient;
+
+    public MetricGuardEvaluator(@Value("${rollout.ramps.prometheus-url:http://localhost:4997}") String prometheusUrl,
+                                @Value("${rollout.ramps.timeout-ms:2000}") int timeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+
+        this.restClient = RestClient.builder().baseUrl(prometheusUrl).requestFactory(requestFactory).build();
+    }
+
+    // Guards are written per plan; {flagKey}, {flagId} and {environmentId} let one query template select the series
+    // of the flag being ramped, escaped for use inside a PromQL label matcher
+    public String scope(String query, Flag flag) {
+        return query
+                .replace("{flagKey}", escapeLabelValue(flag.getKey()))
+                .replace("{flagId}", escapeLabelValue(flag.getId()))
+                .replace("{environmentId}", escapeLabelValue(flag.getEnvironmentId()));
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Empty when Prometheus is unreachable or the query has no data; callers hold rather than guess
+    public OptionalDouble evaluate(String query) {
+        try {
+            JsonNode response = restClient.get()
+                    .uri(uri -> uri.path("/api/v1/query").queryParam("query", "{query}").build(query))
+                    .retrieve()
+                    .body(JsonNode.class);
+
+            JsonNode result = response == null ? null : response.path("data").path("result");
+            if (result == null || !result.isArray() || result.isEmpty()) {
+                return OptionalDouble.empty();
+            }
+
+            double value = Double.parseDouble(result.get(0).path("value").get(1).asText());
+            return Double.isNaN(value) ? OptionalDouble.empty() : OptionalDouble.of(value);
+        } catch (RuntimeException e) {
+            log.warn("Guard query failed: {}", query, e);
+            return OptionalDouble.empty();
+        }
+    }
+
+}
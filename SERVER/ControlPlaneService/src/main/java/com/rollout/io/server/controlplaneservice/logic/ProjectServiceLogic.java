@@ -3,7 +3,9 @@ package com.rollout.io.server.controlplaneservice.logic;
 import com.rollout.io.server.controlplaneservice.entity.Project;
 import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
 import com.rollout.io.server.controlplaneservice.repository.ProjectRepository;
+import com.rollout.io.server.controlplaneservice.service.CascadeDeletionService;
 import com.rollout.io.server.controlplaneservice.service.ProjectService;
+import com.rollout.io.server.controlplaneservice.service.SearchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -19,6 +21,8 @@ import java.util.List;
 public class ProjectServiceLogic implements ProjectService {
 
     private final ProjectRepository projectRepository;
+    private final CascadeDeletionService cascadeDeletionService;
+    private final SearchService searchService;
 
     @Override
     public Project createProject(Jwt jwt, Project project) {
@@ -77,6 +81,8 @@ public class ProjectServiceLogic implements ProjectService {
         Project project = projectRepository.findByIdAndCreatedByUid(projectId, uid)
                 .orElseThrow(() -> new RolloutError("Project not found", HttpStatus.NOT_FOUND));
 
+        // The job goes first, so a crash in between leaves a job waiting for the project rather than orphaned children
+        cascadeDeletionService.scheduleProjectDeletion(project.getId());
         projectRepository.delete(project);
     }
 
@@ -90,8 +96,7 @@ public class ProjectServiceLogic implements ProjectService {
 
     @Override
     public List<Project> searchProjects(Jwt jwt, String query) {
-        String uid = JwtHelper.getUidFromJwt(jwt);
-        return projectRepository.findByCreatedByUidAndNameContainingIgnoreCase(uid, query);
+        return searchService.searchProjects(jwt, query);
     }
 
     // Helper method removed and delegated to JwtHelper
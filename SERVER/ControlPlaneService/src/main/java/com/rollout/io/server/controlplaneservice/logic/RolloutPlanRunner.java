@@ -0,0 +1,228 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
+import com.rollout.io.server.controlplaneservice.entity.RolloutGuard;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlanStatus;
+import com.rollout.io.server.controlplaneservice.entity.RolloutStage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Control loop for progressive rollouts: checks guards every tick and steps or rolls back each active plan
+@Slf4j
+@Component
+public class RolloutPlanRunner {
+
+    private static final String LEASE_NAME = "rollout-plan-runner";
+
+    private final MongoTemplate mongoTemplate;
+    private final MetricGuardEvaluator metricGuardEvaluator;
+    private final FlagChangeRecorder flagChangeRecorder;
+    private final LeaseManager leaseManager;
+    private final Duration lease;
+    private final int batchGuards;
+    private final ExecutorService guardQueries;
+
+    private final AtomicLong activePlans = new AtomicLong();
+    private final Timer tickDuration;
+    private final Counter steps;
+    private final Counter rollbacks;
+
+    public RolloutPlanRunner(MongoTemplate mongoTemplate,
+                             MetricGuardEvaluator metricGuardEvaluator,
+                             FlagChangeRecorder flagChangeRecorder,
+                             LeaseManager leaseManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${rollout.ramps.tick-ms:5000}") long tickMs,
+                             @Value("${rollout.ramps.guard-parallelism:16}") int guardParallelism) {
+        this.mongoTemplate = mongoTemplate;
+        this.metricGuardEvaluator = metricGuardEvaluator;
+        this.flagChangeRecorder = flagChangeRecorder;
+        this.leaseManager = leaseManager;
+        this.lease = Duration.ofMillis(tickMs * 3);
+        // A batch waits at most two query timeouts, well within the lease it renews after each one
+        this.batchGuards = guardParallelism * 2;
+        this.guardQueries = Executors.newFixedThreadPool(guardParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "rollout-guard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.tickDuration = meterRegistry.timer("rollout.ramps.tick.duration");
+        this.steps = meterRegistry.counter("rollout.ramps.transitions", "type", "step");
+        this.rollbacks = meterRegistry.counter("rollout.ramps.transitions", "type", "rollback");
+        meterRegistry.gauge("rollout.ramps.active", activePlans);
+    }
+
+    @PreDestroy
+    void stop() {
+        guardQueries.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${rollout.ramps.tick-ms:5000}")
+    public void tick() {
+        if (!leaseManager.tryAcquire(LEASE_NAME, lease)) {
+            return;
+        }
+
+        tickDuration.record(() -> {
+            Instant now = Instant.now();
+            long active = 0;
+            List<RolloutPlan> batch = new ArrayList<>();
+            int guards = 0;
+
+            try (Stream<RolloutPlan> plans = mongoTemplate.stream(
+                    new Query(Criteria.where("status").is(RolloutPlanStatus.ACTIVE)), RolloutPlan.class)) {
+                for (RolloutPlan plan : (Iterable<RolloutPlan>) plans::iterator) {
+                    active++;
+                    batch.add(plan);
+                    guards += plan.getGuards() == null ? 0 : plan.getGuards().size();
+                    if (guards >= batchGuards) {
+                        if (!evaluate(batch, now)) {
+                            return;
+                        }
+                        batch.clear();
+                        guards = 0;
+                    }
+                }
+            }
+            if (evaluate(batch, now)) {
+                activePlans.set(active);
+            }
+        });
+    }
+
+    // Queries a batch's guards concurrently, then steps its plans; false when the lease was lost meanwhile, so a
+    // slow Prometheus cannot have this replica and the lease's next holder step the same plans
+    private boolean evaluate(List<RolloutPlan> batch, Instant now) {
+        Map<String, CompletableFuture<OptionalDouble>> queries = new HashMap<>();
+        for (RolloutPlan plan : batch) {
+            if (plan.getGuards() != null) {
+                for (RolloutGuard guard : plan.getGuards()) {
+                    queries.computeIfAbsent(guard.getQuery(), query ->
+                            CompletableFuture.supplyAsync(() -> metricGuardEvaluator.evaluate(query), guardQueries));
+                }
+            }
+        }
+        Map<String, OptionalDouble> guardValues = new HashMap<>();
+        queries.forEach((query, value) -> guardValues.put(query, value.join()));
+
+        if (!leaseManager.tryAcquire(LEASE_NAME, lease)) {
+            log.warn("Lost the rollout plan lease mid-pass; its new holder evaluates the remaining plans");
+            return false;
+        }
+        for (RolloutPlan plan : batch) {
+            try {
+                evaluate(plan, now, guardValues);
+            } catch (RuntimeException e) {
+                log.error("Failed to evaluate rollout plan {}", plan.getId(), e);
+            }
+        }
+        return true;
+    }
+
+    private void evaluate(RolloutPlan plan, Instant now, Map<String, OptionalDouble> guardValues) {
+        List<RolloutGuard> guards = plan.getGuards();
+        if (guards == null || guards.isEmpty()) {
+            // Plans created before guards were required have nothing scoped to their flag to check against
+            finish(plan, RolloutPlanStatus.CANCELLED, "Plan has no guards");
+            return;
+        }
+
+        boolean guardsKnown = true;
+        for (RolloutGuard guard : guards) {
+            OptionalDouble value = guardValues.get(guard.getQuery());
+            if (value.isEmpty()) {
+                guardsKnown = false;
+            } else if (value.getAsDouble() > guard.getMaxValue()) {
+                rollBack(plan, "Guard '" + guard.getName() + "' breached: " + value.getAsDouble() + " > " + guard.getMaxValue());
+                return;
+            }
+        }
+
+        // Without fresh guard data the ramp holds its current stage
+        if (!guardsKnown || now.isBefore(plan.getNextStepAt())) {
+            return;
+        }
+
+        int nextStage = plan.getCurrentStage() + 1;
+        if (nextStage >= plan.getStages().size()) {
+            finish(plan, RolloutPlanStatus.COMPLETED, "All stages completed");
+            return;
+        }
+
+        RolloutStage stage = plan.getStages().get(nextStage);
+        setRolloutPercentage(plan, stage.getPercentage());
+        mongoTemplate.updateFirst(activePlan(plan),
+                new Update()
+                        .set("currentStage", nextStage)
+                        .set("nextStepAt", now.plusSeconds(stage.getHoldSeconds()))
+                        .set("updatedAt", now),
+                RolloutPlan.class);
+        steps.increment();
+    }
+
+    private void rollBack(RolloutPlan plan, String reason) {
+        setRolloutPercentage(plan, plan.getRollbackPercentage());
+        finish(plan, RolloutPlanStatus.ROLLED_BACK, reason);
+        rollbacks.increment();
+        log.warn("Rolled back plan {} of flag {}: {}", plan.getId(), plan.getFlagId(), reason);
+    }
+
+    private void setRolloutPercentage(RolloutPlan plan, Integer percentage) {
+        Flag flag = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(plan.getFlagId())),
+                new Update()
+                        .set("rolloutPercentage", percentage)
+                        .inc("version", 1)
+                        .set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Flag.class);
+
+        if (flag == null) {
+            finish(plan, RolloutPlanStatus.CANCELLED, "Flag no longer exists");
+            return;
+        }
+        flagChangeRecorder.record(FlagChangeType.UPDATE, flag, plan.getCreatedByUid());
+    }
+
+    private void finish(RolloutPlan plan, RolloutPlanStatus status, String reason) {
+        mongoTemplate.updateFirst(activePlan(plan),
+                new Update()
+                        .set("status", status)
+                        .set("statusReason", reason)
+                        .set("updatedAt", Instant.now()),
+                RolloutPlan.class);
+    }
+
+    // Guards every write so a plan cancelled mid-tick is left alone
+    private Query activePlan(RolloutPlan plan) {
+        return new Query(Criteria.where("_id").is(plan.getId()).and("status").is(RolloutPlanStatus.ACTIVE));
+    }
+
+}
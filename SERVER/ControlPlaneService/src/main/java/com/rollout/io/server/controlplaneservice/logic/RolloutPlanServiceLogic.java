@@ -0,0 +1,121 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.RolloutGuard;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlanStatus;
+import com.rollout.io.server.controlplaneservice.entity.RolloutStage;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.repository.RolloutPlanRepository;
+import com.rollout.io.server.controlplaneservice.service.CoreFlagService;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import com.rollout.io.server.controlplaneservice.service.RolloutPlanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class RolloutPlanServiceLogic implements RolloutPlanService {
+
+    private final RolloutPlanRepository rolloutPlanRepository;
+    private final MongoTemplate mongoTemplate;
+    private final CoreFlagService coreFlagService;
+    private final EnvironmentService environmentService;
+    private final FlagHelperLogic flagHelperLogic;
+    private final MetricGuardEvaluator metricGuardEvaluator;
+
+    @Override
+    public RolloutPlan createPlan(Jwt jwt, String flagId, RolloutPlan request) {
+        Flag flag = coreFlagService.getCoreFlag(jwt, flagId); // Handles access check
+
+        if (rolloutPlanRepository.existsByFlagIdAndStatus(flagId, RolloutPlanStatus.ACTIVE)) {
+            throw new RolloutError("Flag already has an active rollout plan", HttpStatus.CONFLICT);
+        }
+
+        if (request.getStages() == null || request.getStages().isEmpty()) {
+            throw new RolloutError("Rollout plan needs at least one stage", HttpStatus.BAD_REQUEST);
+        }
+        int previous = 0;
+        for (RolloutStage stage : request.getStages()) {
+            if (stage.getPercentage() == null || stage.getHoldSeconds() == null || stage.getHoldSeconds() < 0) {
+                throw new RolloutError("Every stage needs a percentage and a non-negative holdSeconds", HttpStatus.BAD_REQUEST);
+            }
+            flagHelperLogic.validateRolloutPercentage(stage.getPercentage());
+            if (stage.getPercentage() < previous) {
+                throw new RolloutError("Stage percentages must not decrease", HttpStatus.BAD_REQUEST);
+            }
+            previous = stage.getPercentage();
+        }
+
+        // A shared service-wide metric would let one flag's ramp be rolled back by another's traffic
+        if (request.getGuards() == null || request.getGuards().isEmpty()) {
+            throw new RolloutError("Rollout plan needs at least one guard", HttpStatus.BAD_REQUEST);
+        }
+        List<RolloutGuard> guards = new ArrayList<>(request.getGuards().size());
+        for (RolloutGuard guard : request.getGuards()) {
+            if (guard.getQuery() == null || guard.getQuery().isBlank() || guard.getMaxValue() == null) {
+                throw new RolloutError("Every guard needs a query and a maxValue", HttpStatus.BAD_REQUEST);
+            }
+            guards.add(new RolloutGuard(guard.getName(), metricGuardEvaluator.scope(guard.getQuery(), flag), guard.getMaxValue()));
+        }
+
+        Integer rollbackPercentage = request.getRollbackPercentage() != null ? request.getRollbackPercentage() : 0;
+        flagHelperLogic.validateRolloutPercentage(rollbackPercentage);
+
+        Instant now = Instant.now();
+        return rolloutPlanRepository.save(RolloutPlan.builder()
+                .flagId(flag.getId())
+                .environmentId(flag.getEnvironmentId())
+                .stages(request.getStages())
+                .guards(guards)
+                .currentStage(-1)
+                .rollbackPercentage(rollbackPercentage)
+                .status(RolloutPlanStatus.ACTIVE)
+                .nextStepAt(now) // first stage is applied on the next tick once guards pass
+                .createdByUid(JwtHelper.getUidFromJwt(jwt))
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+
+    @Override
+    public List<RolloutPlan> getPlans(Jwt jwt, String flagId) {
+        coreFlagService.getCoreFlag(jwt, flagId);
+        return rolloutPlanRepository.findAllByFlagIdOrderByCreatedAtDesc(flagId);
+    }
+
+    @Override
+    public RolloutPlan cancelPlan(Jwt jwt, String planId) {
+        RolloutPlan plan = rolloutPlanRepository.findById(planId)
+                .orElseThrow(() -> new RolloutError("Rollout plan not found", HttpStatus.NOT_FOUND));
+        environmentService.getEnvironmentById(jwt, plan.getEnvironmentId());
+
+        // Cancelling stops the ramp where it is; the flag keeps its current exposure
+        RolloutPlan cancelled = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(planId).and("status").is(RolloutPlanStatus.ACTIVE)),
+                new Update()
+                        .set("status", RolloutPlanStatus.CANCELLED)
+                        .set("statusReason", "Cancelled by user")
+                        .set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                RolloutPlan.class);
+
+        if (cancelled == null) {
+            throw new RolloutError("Rollout plan is no longer active", HttpStatus.CONFLICT);
+        }
+        return cancelled;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.rollout.io.server.controlplaneservice.objects.SdkEnvironmentFlags;
+import com.rollout.io.server.controlplaneservice.objects.SdkFlag;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes the SDK bodies without the ApiResponse envelope: no message or timestamp, so equal states give equal bytes.
+// Flag arrays are encoded once per snapshot and filter and spliced in as buffer segments.
+@Component
+public class SdkResponseEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter flagsWriter;
+
+    public SdkResponseEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.flagsWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, SdkFlag.class));
+    }
+
+    public byte[] encodeFlags(List<SnapshotFlag> flags) {
+        List<SdkFlag> sdkFlags = flags.stream()
+                .map(flag -> new SdkFlag(flag.key(), flag.type(), flag.enabled(), flag.value(),
+                        flag.rolloutPercentage(), flag.version()))
+                .toList();
+        try {
+            return flagsWriter.writeValueAsBytes(sdkFlags);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // {"environmentId":..,"revision":..,"flags":[..]}
+    public List<ByteBuffer> encodeEnvironment(String environmentId, long revision, ByteBuffer flagsJson) {
+        return write(body -> {
+            JsonGenerator generator = body.generator();
+            generator.writeStartObject();
+            generator.writeStringField("environmentId", environmentId);
+            generator.writeNumberField("revision", revision);
+            body.splice("flags", flagsJson);
+            generator.writeEndObject();
+        });
+    }
+
+    // {"environments":[{"sdkKey":..,"status":..,"environmentId":..,"revision":..,"flags":[..]}, ..]}
+    public List<ByteBuffer> encodeBatch(List<SdkEnvironmentFlags> environments) {
+        return write(body -> {
+            JsonGenerator generator = body.generator();
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("environments");
+            for (SdkEnvironmentFlags environment : environments) {
+                generator.writeStartObject();
+                generator.writeStringField("sdkKey", environment.getSdkKey());
+                generator.writeStringField("status", environment.getStatus().name());
+                if (environment.getEnvironmentId() != null) {
+                    generator.writeStringField("environmentId", environment.getEnvironmentId());
+                    generator.writeNumberField("revision", environment.getRevision());
+                }
+                if (environment.getFlagsJson() != null) {
+                    body.splice("flags", environment.getFlagsJson());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    private List<ByteBuffer> write(JsonBody body) {
+        Segments segments = new Segments();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(segments.out)) {
+            segments.generator = generator;
+            body.writeTo(segments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.cut();
+        return segments.buffers;
+    }
+
+    // The envelope is generated on the heap; encoded flag arrays are referenced as they are, never copied into it
+    private static final class Segments {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private JsonGenerator generator;
+
+        JsonGenerator generator() {
+            return generator;
+        }
+
+        void splice(String name, ByteBuffer json) throws IOException {
+            generator.writeFieldName(name);
+            generator.writeRawValue(""); // only the separator; the value is the spliced buffer
+            generator.flush();
+            cut();
+            buffers.add(json);
+        }
+
+        void cut() {
+            if (out.size() > 0) {
+                buffers.add(ByteBuffer.wrap(out.toByteArray()));
+                out.reset();
+            }
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void writeTo(Segments body) throws IOException;
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCategory;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.PersistentHashMap;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+// Serves SDK fetches from per-environment snapshots that are rebuilt only when the environment revision moves
+@Component
+public class SdkSnapshotCache {
+
+    private record Entry(EnvironmentSnapshot snapshot, long validatedAtMs) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final SdkResponseEncoder sdkResponseEncoder;
+    private final SnapshotInterner snapshotInterner;
+    private final SnapshotBodyStore snapshotBodyStore;
+    private final long revalidateMs;
+    private final int maxEnvironments;
+    private final int maxSubsets;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Least recently validated key first; only loads touch it, so cache hits never take its lock
+    private final Set<String> validationOrder = new LinkedHashSet<>();
+    private final ExecutorService loader;
+    private final Counter hits;
+    private final Counter revalidations;
+    private final Counter loads;
+
+    public SdkSnapshotCache(MongoTemplate mongoTemplate,
+                            SdkResponseEncoder sdkResponseEncoder,
+                            SnapshotInterner snapshotInterner,
+                            SnapshotBodyStore snapshotBodyStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${rollout.sdk.snapshots.revalidate-ms:1000}") long revalidateMs,
+                            @Value("${rollout.sdk.snapshots.max-environments:10000}") int maxEnvironments,
+                            @Value("${rollout.sdk.snapshots.max-subsets:64}") int maxSubsets,
+                            @Value("${rollout.sdk.snapshots.load-threads:8}") int loadThreads) {
+        this.mongoTemplate = mongoTemplate;
+        this.sdkResponseEncoder = sdkResponseEncoder;
+        this.snapshotInterner = snapshotInterner;
+        this.snapshotBodyStore = snapshotBodyStore;
+        this.revalidateMs = revalidateMs;
+        this.maxEnvironments = maxEnvironments;
+        this.maxSubsets = maxSubsets;
+        this.loader = Executors.newFixedThreadPool(loadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sdk-snapshot-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.hits = meterRegistry.counter("rollout.sdk.snapshots", "result", "hit");
+        this.revalidations = meterRegistry.counter("rollout.sdk.snapshots", "result", "revalidated");
+        this.loads = meterRegistry.counter("rollout.sdk.snapshots", "result", "load");
+        meterRegistry.gaugeMapSize("rollout.sdk.snapshots.cached", List.of(), entries);
+    }
+
+    public EnvironmentSnapshot get(String sdkKey) {
+        EnvironmentSnapshot fresh = fresh(sdkKey);
+        return fresh != null ? fresh : load(sdkKey);
+    }
+
+    // Resolves several keys at once: fresh snapshots inline, the rest in parallel. Unknown keys map to null.
+    public List<EnvironmentSnapshot> getAll(List<String> sdkKeys) {
+        List<CompletableFuture<EnvironmentSnapshot>> lookups = new ArrayList<>(sdkKeys.size());
+        for (String sdkKey : sdkKeys) {
+            EnvironmentSnapshot fresh = fresh(sdkKey);
+            lookups.add(fresh != null
+                    ? CompletableFuture.completedFuture(fresh)
+                    : CompletableFuture.supplyAsync(() -> loadOrNull(sdkKey), loader));
+        }
+
+        List<EnvironmentSnapshot> snapshots = new ArrayList<>(lookups.size());
+        for (CompletableFuture<EnvironmentSnapshot> lookup : lookups) {
+            try {
+                snapshots.add(lookup.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return snapshots;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+        entries.values().forEach(entry -> entry.snapshot().release());
+        entries.clear();
+        synchronized (validationOrder) {
+            validationOrder.clear();
+        }
+    }
+
+    private EnvironmentSnapshot fresh(String sdkKey) {
+        Entry entry = entries.get(sdkKey);
+        if (entry != null && System.currentTimeMillis() - entry.validatedAtMs() < revalidateMs) {
+            hits.increment();
+            return entry.snapshot();
+        }
+        return null;
+    }
+
+    private EnvironmentSnapshot loadOrNull(String sdkKey) {
+        try {
+            return load(sdkKey);
+        } catch (RolloutError e) {
+            return null;
+        }
+    }
+
+    private EnvironmentSnapshot load(String sdkKey) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(sdkKey);
+
+        // One indexed lookup of the revision decides whether the cached flags are still current.
+        // It also catches rotated keys, which stop resolving within one revalidation interval.
+        Query environmentQuery = new Query(Criteria.where("sdkKey").is(sdkKey));
+        environmentQuery.fields().include("revision");
+        Environment environment = mongoTemplate.findOne(environmentQuery, Environment.class);
+        if (environment == null) {
+            synchronized (validationOrder) {
+                validationOrder.remove(sdkKey);
+            }
+            discard(entries.remove(sdkKey), null);
+            throw new RolloutError("Environment not found for the given SDK Key", HttpStatus.NOT_FOUND);
+        }
+        long revision = environment.getRevision() != null ? environment.getRevision() : 0L;
+
+        EnvironmentSnapshot snapshot;
+        if (entry != null && entry.snapshot().getRevision() == revision) {
+            revalidations.increment();
+            snapshot = entry.snapshot();
+        } else {
+            loads.increment();
+            PersistentHashMap<String, SnapshotFlag> previous = entry != null ? entry.snapshot().getFlags() : PersistentHashMap.empty();
+            snapshot = new EnvironmentSnapshot(environment.getId(), revision, loadFlags(environment.getId(), previous),
+                    sdkResponseEncoder::encodeFlags, snapshotBodyStore::store, maxSubsets);
+        }
+
+        String evicted = validated(sdkKey);
+        discard(entries.put(sdkKey, new Entry(snapshot, now)), snapshot);
+        if (evicted != null) {
+            discard(entries.remove(evicted), null);
+        }
+        return snapshot;
+    }
+
+    // A replaced or evicted snapshot gives back its encoded bodies; responses holding them finish first
+    private void discard(Entry previous, EnvironmentSnapshot current) {
+        if (previous != null && previous.snapshot() != current) {
+            previous.snapshot().release();
+        }
+    }
+
+    // Derives the new flag map from the previous revision's. Unchanged flags intern to the very entries already
+    // mapped, which the persistent map keeps without copying, so only changed paths are allocated.
+    private PersistentHashMap<String, SnapshotFlag> loadFlags(String environmentId, PersistentHashMap<String, SnapshotFlag> previous) {
+        Query query = new Query(Criteria.where("environmentId").is(environmentId).and("category").is(FlagCategory.CORE));
+        query.fields().include("key", "type", "enabled", "value", "valueRef", "rolloutPercentage", "version", "tags");
+
+        PersistentHashMap<String, SnapshotFlag> flags = previous;
+        Set<String> seen = new HashSet<>();
+        try (Stream<Flag> loaded = mongoTemplate.stream(query, Flag.class)) {
+            for (Flag flag : (Iterable<Flag>) loaded::iterator) {
+                SnapshotFlag interned = snapshotInterner.flag(flag);
+                seen.add(interned.key());
+                flags = flags.put(interned.key(), interned);
+            }
+        }
+
+        if (flags.size() > seen.size()) {
+            List<String> removed = new ArrayList<>();
+            flags.forEach((key, flag) -> {
+                if (!seen.contains(key)) {
+                    removed.add(key);
+                }
+            });
+            for (String key : removed) {
+                flags = flags.remove(key);
+            }
+        }
+        return flags;
+    }
+
+    // Entries are revalidated on use anyway, so dropping the least recently validated one is enough.
+    // Returns the key that fell out of the cache, if any.
+    private String validated(String sdkKey) {
+        synchronized (validationOrder) {
+            validationOrder.remove(sdkKey);
+            validationOrder.add(sdkKey);
+            if (validationOrder.size() <= maxEnvironments) {
+                return null;
+            }
+            Iterator<String> oldest = validationOrder.iterator();
+            String evicted = oldest.next();
+            oldest.remove();
+            return evicted;
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.Project;
+import com.rollout.io.server.controlplaneservice.helpers.SearchTokens;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Fills the search fields of documents written before they existed
+@Slf4j
+@Component
+public class SearchIndexBackfill {
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public SearchIndexBackfill(MongoTemplate mongoTemplate,
+                               @Value("${rollout.search.backfill-batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        backfill(Project.class, List.of("name"),
+                doc -> update(SearchTokens.normalize(doc.getString("name")), SearchTokens.grams(doc.getString("name"))));
+        backfill(Environment.class, List.of("name"),
+                doc -> update(SearchTokens.normalize(doc.getString("name")), SearchTokens.grams(doc.getString("name"))));
+        backfill(Flag.class, List.of("key", "displayName"),
+                doc -> update(SearchTokens.normalize(doc.getString("key")),
+                        SearchTokens.grams(doc.getString("key"), doc.getString("displayName"))));
+    }
+
+    private void backfill(Class<?> type, List<String> fields, Function<Document, Update> updateFor) {
+        Query query = new Query(Criteria.where("searchGrams").exists(false)).cursorBatchSize(batchSize);
+        fields.forEach(field -> query.fields().include(field));
+
+        String collection = mongoTemplate.getCollectionName(type);
+        BulkOperations bulkOps = null;
+        int pending = 0;
+        long total = 0;
+
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collection)) {
+            for (Document doc : (Iterable<Document>) documents::iterator) {
+                if (bulkOps == null) {
+                    bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+                }
+                bulkOps.updateOne(new Query(Criteria.where("_id").is(doc.get("_id"))), updateFor.apply(doc));
+                total++;
+                if (++pending == batchSize) {
+                    bulkOps.execute();
+                    bulkOps = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulkOps != null) {
+            bulkOps.execute();
+        }
+
+        if (total > 0) {
+            log.info("Backfilled search fields for {} {} documents", total, collection);
+        }
+    }
+
+    private Update update(String searchName, List<String> searchGrams) {
+        return new Update().set("searchName", searchName).set("searchGrams", searchGrams);
+    }
+
+}
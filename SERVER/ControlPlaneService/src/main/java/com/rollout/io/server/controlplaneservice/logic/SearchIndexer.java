@@ -0,0 +1,40 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.Project;
+import com.rollout.io.server.controlplaneservice.helpers.SearchTokens;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Keeps the search fields in step with the names on every repository or template save.
+// Writes that bypass entity conversion (bulk upserts, $set updates) set the fields themselves.
+@Component
+public class SearchIndexer implements BeforeConvertCallback<Object> {
+
+    @Override
+    public Object onBeforeConvert(Object entity, String collection) {
+        if (entity instanceof Project project) {
+            project.setSearchName(SearchTokens.normalize(project.getName()));
+            project.setSearchGrams(SearchTokens.grams(project.getName()));
+        } else if (entity instanceof Environment environment) {
+            environment.setSearchName(SearchTokens.normalize(environment.getName()));
+            environment.setSearchGrams(SearchTokens.grams(environment.getName()));
+        } else if (entity instanceof Flag flag) {
+            flag.setSearchName(searchName(flag));
+            flag.setSearchGrams(searchGrams(flag));
+        }
+        return entity;
+    }
+
+    public static String searchName(Flag flag) {
+        return SearchTokens.normalize(flag.getKey());
+    }
+
+    public static List<String> searchGrams(Flag flag) {
+        return SearchTokens.grams(flag.getKey(), flag.getDisplayName());
+    }
+
+}
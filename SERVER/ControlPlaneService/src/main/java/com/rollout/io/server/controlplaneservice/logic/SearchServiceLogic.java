@@ -0,0 +1,198 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.Project;
+import com.rollout.io.server.controlplaneservice.entity.SearchResultType;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import com.rollout.io.server.controlplaneservice.helpers.JwtHelper;
+import com.rollout.io.server.controlplaneservice.helpers.SearchTokens;
+import com.rollout.io.server.controlplaneservice.objects.SearchResult;
+import com.rollout.io.server.controlplaneservice.objects.SearchResults;
+import com.rollout.io.server.controlplaneservice.service.SearchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class SearchServiceLogic implements SearchService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final Comparator<SearchResult> RANKING = Comparator.comparingInt(SearchResult::getScore).reversed()
+            .thenComparingInt(result -> result.getName().length())
+            .thenComparing(SearchResult::getName);
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxCandidates;
+    private final Timer searchDuration;
+
+    public SearchServiceLogic(MongoTemplate mongoTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${rollout.search.max-candidates:5000}") int maxCandidates) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxCandidates = maxCandidates;
+        this.searchDuration = meterRegistry.timer("rollout.search.duration");
+    }
+
+    @Override
+    public SearchResults search(Jwt jwt, String query, Set<SearchResultType> types, int page, int size) {
+        String uid = JwtHelper.getUidFromJwt(jwt);
+        String normalized = normalizeQuery(query);
+        Set<SearchResultType> scope = types == null || types.isEmpty() ? EnumSet.allOf(SearchResultType.class) : types;
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageIndex = Math.max(page, 0);
+
+        return searchDuration.record(() -> {
+            List<SearchResult> ranked = new ArrayList<>();
+            boolean truncated = false;
+
+            if (scope.contains(SearchResultType.PROJECT)) {
+                truncated |= collect(uid, normalized, Project.class, List.of("name"),
+                        project -> rank(SearchResultType.PROJECT, project.getId(), project.getName(), null,
+                                project.getId(), null, normalized),
+                        ranked);
+            }
+            if (scope.contains(SearchResultType.ENVIRONMENT)) {
+                truncated |= collect(uid, normalized, Environment.class, List.of("name", "projectId"),
+                        environment -> rank(SearchResultType.ENVIRONMENT, environment.getId(), environment.getName(), null,
+                                environment.getProjectId(), environment.getId(), normalized),
+                        ranked);
+            }
+            if (scope.contains(SearchResultType.FLAG)) {
+                truncated |= collect(uid, normalized, Flag.class, List.of("key", "displayName", "environmentId"),
+                        flag -> rank(SearchResultType.FLAG, flag.getId(), flag.getKey(), flag.getDisplayName(),
+                                null, flag.getEnvironmentId(), normalized),
+                        ranked);
+            }
+
+            ranked.sort(RANKING);
+            int from = (int) Math.min((long) pageIndex * pageSize, ranked.size());
+            int to = Math.min(from + pageSize, ranked.size());
+            List<SearchResult> items = withProjectIds(ranked.subList(from, to));
+
+            return new SearchResults(query, pageIndex, pageSize, ranked.size(), truncated, items);
+        });
+    }
+
+    @Override
+    public List<Project> searchProjects(Jwt jwt, String query) {
+        String uid = JwtHelper.getUidFromJwt(jwt);
+        String normalized = normalizeQuery(query);
+
+        Map<String, Project> projects = new HashMap<>();
+        List<SearchResult> ranked = new ArrayList<>();
+        for (Project project : mongoTemplate.find(candidateQuery(uid, normalized), Project.class)) {
+            SearchResult result = rank(SearchResultType.PROJECT, project.getId(), project.getName(), null,
+                    project.getId(), null, normalized);
+            if (result != null) {
+                projects.put(project.getId(), project);
+                ranked.add(result);
+            }
+        }
+        ranked.sort(RANKING);
+        return ranked.stream().map(result -> projects.get(result.getId())).toList();
+    }
+
+    private String normalizeQuery(String query) {
+        String normalized = SearchTokens.normalize(query);
+        if (normalized.isEmpty()) {
+            throw new RolloutError("Search query must contain letters or digits", HttpStatus.BAD_REQUEST);
+        }
+        return normalized;
+    }
+
+    // Both branches are served by the (createdByUid, searchGrams) index
+    private Query candidateQuery(String uid, String normalized) {
+        Criteria criteria = Criteria.where("createdByUid").is(uid);
+        if (normalized.length() < SearchTokens.GRAM_SIZE) {
+            // Too short for a trigram. Any substring that short lies inside one of the name's trigrams (or is the
+            // whole name), so an unanchored regex over the grams keeps substring matching; it scans only the
+            // user's index range and stops at the candidate limit. The normalized query holds only letters,
+            // digits and spaces, so it needs no escaping.
+            criteria = criteria.and("searchGrams").regex(normalized);
+        } else {
+            criteria = criteria.and("searchGrams").all(SearchTokens.gramsOf(normalized));
+        }
+        return new Query(criteria).limit(maxCandidates + 1);
+    }
+
+    private <T> boolean collect(String uid, String normalized, Class<T> type, List<String> fields,
+                                Function<T, SearchResult> ranker, List<SearchResult> out) {
+        Query query = candidateQuery(uid, normalized);
+        fields.forEach(field -> query.fields().include(field));
+
+        List<T> candidates = mongoTemplate.find(query, type);
+        boolean truncated = candidates.size() > maxCandidates;
+        for (T candidate : truncated ? candidates.subList(0, maxCandidates) : candidates) {
+            SearchResult result = ranker.apply(candidate);
+            if (result != null) {
+                out.add(result);
+            }
+        }
+        return truncated;
+    }
+
+    // Trigram containment can match names that do not contain the query itself, so those rank as null
+    private SearchResult rank(SearchResultType type, String id, String name, String displayName,
+                              String projectId, String environmentId, String normalized) {
+        int score = Math.max(score(name, normalized), score(displayName, normalized));
+        if (score == 0) {
+            return null;
+        }
+        return new SearchResult(type, id, name, displayName, projectId, environmentId, score);
+    }
+
+    private int score(String name, String normalized) {
+        String candidate = SearchTokens.normalize(name);
+        if (candidate.equals(normalized)) {
+            return 100;
+        }
+        if (candidate.startsWith(normalized)) {
+            return 80;
+        }
+        if (candidate.contains(" " + normalized)) {
+            return 60; // starts a word
+        }
+        return candidate.contains(normalized) ? 40 : 0;
+    }
+
+    // Flags only carry their environment, so the page's project ids are filled in with one lookup
+    private List<SearchResult> withProjectIds(List<SearchResult> items) {
+        Set<String> environmentIds = items.stream()
+                .filter(item -> item.getProjectId() == null && item.getEnvironmentId() != null)
+                .map(SearchResult::getEnvironmentId)
+                .collect(Collectors.toSet());
+        if (environmentIds.isEmpty()) {
+            return new ArrayList<>(items);
+        }
+
+        Query query = new Query(Criteria.where("_id").in(environmentIds));
+        query.fields().include("projectId");
+        Map<String, String> projectIds = mongoTemplate.find(query, Environment.class).stream()
+                .collect(Collectors.toMap(Environment::getId, Environment::getProjectId));
+
+        return items.stream()
+                .map(item -> item.getProjectId() != null ? item : new SearchResult(item.getType(), item.getId(),
+                        item.getName(), item.getDisplayName(), projectIds.get(item.getEnvironmentId()),
+                        item.getEnvironmentId(), item.getScore()))
+                .toList();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Encoded JSON held by a snapshot, on the heap or in an off-heap chunk. Off-heap bodies are reference counted:
+// the snapshot holds one reference, each response in flight holds another, and the chunk is freed after the last.
+public final class SnapshotBody {
+
+    private final ByteBuffer buffer;
+    private final Runnable free;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    SnapshotBody(ByteBuffer buffer, Runnable free) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.free = free;
+    }
+
+    public static SnapshotBody onHeap(byte[] json) {
+        return new SnapshotBody(ByteBuffer.wrap(json), null);
+    }
+
+    // False once the body has been freed; the caller then has to encode its own copy
+    public boolean retain() {
+        if (free == null) {
+            return true;
+        }
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release() {
+        if (free != null && references.decrementAndGet() == 0) {
+            free.run();
+        }
+    }
+
+    // A zero-copy view with its own position, valid until the matching release()
+    public ByteBuffer slice() {
+        return buffer.duplicate();
+    }
+
+    public boolean isOffHeap() {
+        return free != null;
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.helpers.SlabAllocator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+// Where snapshots keep their memoized encoded bodies. Off by default; when enabled, bodies live in slabs outside
+// the Java heap, so thousands of cached environments add little to the live set the collector has to trace.
+@Component
+public class SnapshotBodyStore {
+
+    private final SlabAllocator allocator;
+    private final int minBytes;
+    private final Counter offHeap;
+    private final Counter onHeap;
+
+    public SnapshotBodyStore(MeterRegistry meterRegistry,
+                             @Value("${rollout.sdk.snapshots.off-heap.enabled:false}") boolean enabled,
+                             @Value("${rollout.sdk.snapshots.off-heap.slab-bytes:4194304}") int slabBytes,
+                             @Value("${rollout.sdk.snapshots.off-heap.min-chunk-bytes:512}") int minChunkBytes,
+                             @Value("${rollout.sdk.snapshots.off-heap.max-slabs:256}") int maxSlabs,
+                             @Value("${rollout.sdk.snapshots.off-heap.min-bytes:256}") int minBytes,
+                             @Value("${rollout.sdk.snapshots.off-heap.directory:}") String directory) {
+        this.allocator = enabled
+                ? new SlabAllocator(slabBytes, minChunkBytes, maxSlabs, directory.isBlank() ? null : Path.of(directory))
+                : null;
+        this.minBytes = minBytes;
+
+        this.offHeap = meterRegistry.counter("rollout.sdk.snapshots.bodies", "store", "off-heap");
+        this.onHeap = meterRegistry.counter("rollout.sdk.snapshots.bodies", "store", "heap");
+        if (allocator != null) {
+            meterRegistry.gauge("rollout.sdk.snapshots.off-heap.used", allocator, SlabAllocator::usedBytes);
+            meterRegistry.gauge("rollout.sdk.snapshots.off-heap.reserved", allocator, SlabAllocator::reservedBytes);
+        }
+    }
+
+    public SnapshotBody store(byte[] json) {
+        // Tiny bodies cost less on the heap than a chunk; oversized ones or a full allocator fall back to it
+        SlabAllocator.Chunk chunk = allocator != null && json.length >= minBytes ? allocator.allocate(json.length) : null;
+        if (chunk == null) {
+            onHeap.increment();
+            return SnapshotBody.onHeap(json);
+        }
+        chunk.buffer().put(json).flip();
+        offHeap.increment();
+        return new SnapshotBody(chunk.buffer(), () -> allocator.free(chunk));
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.FlagType;
+
+import java.util.List;
+import java.util.Set;
+
+// The part of a core flag an SDK snapshot keeps. Instances are interned, so equal flags in different
+// environments or revisions are one object and compare by identity on the fast path.
+public record SnapshotFlag(String key, FlagType type, Boolean enabled, Object value, Integer rolloutPercentage,
+                           Integer version, List<String> tags) {
+
+    public boolean hasAnyTag(Set<String> wanted) {
+        if (tags == null) {
+            return false;
+        }
+        for (String tag : tags) {
+            if (wanted.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
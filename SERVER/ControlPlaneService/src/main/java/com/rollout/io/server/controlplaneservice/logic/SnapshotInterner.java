@@ -0,0 +1,112 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Canonicalizes snapshot flags and everything inside them (keys, tags, JSON values, bottom up), so
+// environments holding near-identical flag sets share one copy of each distinct piece. The pool is weak:
+// entries no snapshot references any more are collected with the snapshot. JSON object members are put in key
+// order before interning, so equal objects share one copy and encode to the same bytes whichever came first.
+@Component
+public class SnapshotInterner {
+
+    /*
+     * A concurrent map keyed by weak references that compare by their referents' equals(). A lookup probes with a
+     * fresh key: it matches a live entry, or is inserted itself. Keys whose referent was collected are removed
+     * from the map as the reference queue reports them.
+     */
+    private final Map<WeakKey, WeakKey> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    public SnapshotInterner(MeterRegistry meterRegistry) {
+        meterRegistry.gauge("rollout.sdk.snapshots.interned", pool, Map::size);
+    }
+
+    public SnapshotFlag flag(Flag flag) {
+        return intern(new SnapshotFlag(
+                intern(flag.getKey()),
+                flag.getType(),
+                flag.getEnabled(),
+                value(flag.getValue()),
+                flag.getRolloutPercentage(),
+                flag.getVersion(),
+                flag.getTags() == null ? null : intern(flag.getTags().stream().map(this::intern).toList())));
+    }
+
+    private Object value(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, item) -> sorted.put(String.valueOf(key), item));
+            Map<String, Object> copy = new LinkedHashMap<>();
+            sorted.forEach((key, item) -> copy.put(intern(key), value(item)));
+            return intern(Collections.unmodifiableMap(copy));
+        }
+        if (value instanceof List<?> list) {
+            return intern(list.stream().map(this::value).toList());
+        }
+        return value instanceof String text ? intern(text) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T intern(T candidate) {
+        if (candidate == null) {
+            return null;
+        }
+        purge();
+        WeakKey key = new WeakKey(candidate, collected);
+        while (true) {
+            WeakKey existing = pool.putIfAbsent(key, key);
+            if (existing == null) {
+                return candidate;
+            }
+            Object canonical = existing.get();
+            if (canonical != null) {
+                return (T) canonical;
+            }
+            pool.remove(existing, existing); // collected between the match and the read
+        }
+    }
+
+    private void purge() {
+        for (Reference<?> reference; (reference = collected.poll()) != null; ) {
+            pool.remove(reference);
+        }
+    }
+
+    private static final class WeakKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        WeakKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = referent.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            Object referent = get();
+            return referent != null && other instanceof WeakKey key && referent.equals(key.get());
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FlagImportResult {
+
+    private final long imported;
+
+    private final long duplicates; // key already present in the environment
+
+    private final long rejected; // failed value validation
+
+    private final long failed; // rejected by the database for any reason other than a duplicate key
+
+    private final long durationMs;
+
+}
@@ -0,0 +1,28 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rollout.io.server.controlplaneservice.entity.JsonPatchOp;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One RFC 6902 operation
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+@AllArgsConstructor
+public class JsonPatchOperation {
+
+    @NotNull
+    private JsonPatchOp op;
+
+    @NotNull
+    private String path;
+
+    private String from; // move and copy only
+
+    private JsonNode value; // add, replace and test only
+
+}
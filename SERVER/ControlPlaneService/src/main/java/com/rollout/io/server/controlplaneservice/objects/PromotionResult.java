@@ -0,0 +1,22 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PromotionResult {
+
+    private final String sourceEnvironmentId;
+
+    private final String targetEnvironmentId;
+
+    private final long created;
+
+    private final long updated;
+
+    private final long skipped;
+
+    private final long durationMs;
+
+}
@@ -0,0 +1,22 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RollbackResult {
+
+    private final String environmentId;
+
+    private final long revision;
+
+    private final long restored;
+
+    private final long deleted;
+
+    private final long unchanged;
+
+    private final long replayedChanges;
+
+}
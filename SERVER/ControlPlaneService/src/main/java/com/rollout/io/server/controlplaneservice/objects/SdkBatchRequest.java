@@ -0,0 +1,27 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SdkBatchRequest {
+
+    @NotEmpty
+    @Size(max = 50)
+    private List<@Valid SdkKeyRevision> environments;
+
+    // Applied to every environment in the batch
+    private Set<String> tags;
+
+    private String prefix;
+
+}
@@ -0,0 +1,23 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import com.rollout.io.server.controlplaneservice.entity.SdkFetchStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+
+@Getter
+@AllArgsConstructor
+public class SdkEnvironmentFlags {
+
+    private final String sdkKey;
+
+    private final SdkFetchStatus status;
+
+    private final String environmentId;
+
+    private final Long revision;
+
+    private final ByteBuffer flagsJson; // encoded SdkFlag array, only for OK
+
+}
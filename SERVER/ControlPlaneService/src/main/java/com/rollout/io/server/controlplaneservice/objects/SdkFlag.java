@@ -0,0 +1,28 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.rollout.io.server.controlplaneservice.entity.FlagType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// What an SDK needs to evaluate a flag; audit fields and timestamps stay out so payloads are stable per revision
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"key", "type", "enabled", "value", "rolloutPercentage", "version"})
+public class SdkFlag {
+
+    private final String key;
+
+    private final FlagType type;
+
+    private final Boolean enabled;
+
+    private final Object value;
+
+    private final Integer rolloutPercentage;
+
+    private final Integer version;
+
+}
@@ -0,0 +1,18 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SdkKeyRevision {
+
+    @NotBlank
+    private String sdkKey;
+
+    private Long revision; // last revision the caller holds for this environment, if any
+
+}
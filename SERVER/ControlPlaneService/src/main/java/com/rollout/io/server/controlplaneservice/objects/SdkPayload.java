@@ -0,0 +1,25 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SdkPayload {
+
+    private final String etag; // null for batch responses, which are POSTs
+
+    private final boolean notModified;
+
+    private final List<ByteBuffer> body; // pre-encoded JSON segments, byte-identical for identical environment states
+
+    private final Runnable release; // returns the snapshot bodies the segments point into, once they are written
+
+    public SdkPayload(String etag, boolean notModified) {
+        this(etag, notModified, null, () -> { });
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import com.rollout.io.server.controlplaneservice.entity.SearchResultType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SearchResult {
+
+    private final SearchResultType type;
+
+    private final String id;
+
+    private final String name; // project or environment name, flag key
+
+    private final String displayName; // flags only
+
+    private final String projectId;
+
+    private final String environmentId;
+
+    private final int score;
+
+}
@@ -0,0 +1,24 @@
+package com.rollout.io.server.controlplaneservice.objects;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class SearchResults {
+
+    private final String query;
+
+    private final int page;
+
+    private final int size;
+
+    private final long total;
+
+    private final boolean truncated; // more candidates matched than were ranked
+
+    private final List<SearchResult> items;
+
+}
@@ -0,0 +1,15 @@
+package com.rollout.io.server.controlplaneservice.repository;
+
+import com.rollout.io.server.controlplaneservice.entity.DeletionJob;
+import com.rollout.io.server.controlplaneservice.entity.DeletionJobStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface DeletionJobRepository extends MongoRepository<DeletionJob, String> {
+
+    long countByStatusNotIn(Collection<DeletionJobStatus> statuses);
+
+}
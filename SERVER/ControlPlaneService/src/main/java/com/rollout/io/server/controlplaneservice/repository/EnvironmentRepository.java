@@ -2,6 +2,8 @@ package com.rollout.io.server.controlplaneservice.repository;
 
 import com.rollout.io.server.controlplaneservice.entity.Environment;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +18,13 @@ public interface EnvironmentRepository extends MongoRepository<Environment, Stri
 
     Optional<Environment> findBySdkKey(String sdkKey);
 
+    // Targeted updates, so a concurrent revision bump from a flag change is never overwritten by a full save
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'sdkKey': ?1 } }")
+    long updateSdkKeyById(String id, String sdkKey);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$set': { 'name': ?1, 'searchName': ?2, 'searchGrams': ?3 } }")
+    long updateNameById(String id, String name, String searchName, List<String> searchGrams);
+
 }
@@ -0,0 +1,14 @@
+package com.rollout.io.server.controlplaneservice.repository;
+
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FlagScheduleRepository extends MongoRepository<FlagSchedule, String> {
+
+    List<FlagSchedule> findAllByFlagIdOrderByFireAtAsc(String flagId);
+
+}
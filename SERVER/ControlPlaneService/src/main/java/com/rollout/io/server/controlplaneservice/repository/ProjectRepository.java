@@ -16,6 +16,4 @@ public interface ProjectRepository extends MongoRepository<Project, String> {
 
     Optional<Project> findByIdAndCreatedByUid(String id, String createdByUid);
 
-    List<Project> findByCreatedByUidAndNameContainingIgnoreCase(String createdByUid, String name);
-
 }
@@ -0,0 +1,17 @@
+package com.rollout.io.server.controlplaneservice.repository;
+
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlanStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RolloutPlanRepository extends MongoRepository<RolloutPlan, String> {
+
+    List<RolloutPlan> findAllByFlagIdOrderByCreatedAtDesc(String flagId);
+
+    boolean existsByFlagIdAndStatus(String flagId, RolloutPlanStatus status);
+
+}
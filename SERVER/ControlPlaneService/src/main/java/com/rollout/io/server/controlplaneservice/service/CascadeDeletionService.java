@@ -0,0 +1,13 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.entity.DeletionJob;
+import org.springframework.stereotype.Service;
+
+@Service
+public interface CascadeDeletionService {
+
+    DeletionJob scheduleProjectDeletion(String projectId);
+
+    DeletionJob scheduleEnvironmentDeletion(String environmentId);
+
+}
@@ -1,10 +1,13 @@
 package com.rollout.io.server.controlplaneservice.service;
 
 import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.objects.SdkBatchRequest;
+import com.rollout.io.server.controlplaneservice.objects.SdkPayload;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public interface CoreFlagService {
@@ -19,10 +22,14 @@ public interface CoreFlagService {
 
     Flag getCoreFlag(Jwt jwt, String flagId);
 
-    List<Flag> getCoreFlagsBySdkKey(String sdkKey);
+    SdkPayload getCoreFlagsBySdkKey(String sdkKey, Set<String> tags, String keyPrefix, String ifNoneMatch);
+
+    SdkPayload getCoreFlagsBySdkKeys(SdkBatchRequest request);
 
     Flag updateCoreFlag(Jwt jwt, String flagId, Flag flag);
 
+    Flag removeCoreFlagSchema(Jwt jwt, String flagId);
+
     void deleteCoreFlag(Jwt jwt, String flagId);
 
     Flag toggleCoreFlag(Jwt jwt, String flagId);
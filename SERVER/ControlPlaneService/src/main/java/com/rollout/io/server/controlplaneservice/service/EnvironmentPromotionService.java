@@ -0,0 +1,15 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.entity.PromotionMode;
+import com.rollout.io.server.controlplaneservice.objects.PromotionResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+@Service
+public interface EnvironmentPromotionService {
+
+    PromotionResult promoteEnvironment(Jwt jwt, String sourceEnvironmentId, String targetEnvironmentId, PromotionMode mode);
+
+    PromotionResult cloneEnvironment(Jwt jwt, String sourceEnvironmentId, String newName);
+
+}
@@ -15,7 +15,7 @@ public interface EnvironmentService {
 
     Environment getEnvironmentById(Jwt jwt, String environmentId);
     
-    // Deleting an environment might have consequences on active flags/rules, but let's assume simple delete for now.
+    // Removes the environment immediately; its flags are deleted asynchronously in batches.
     void deleteEnvironment(Jwt jwt, String environmentId);
 
     Environment rotateSdkKey(Jwt jwt, String environmentId);
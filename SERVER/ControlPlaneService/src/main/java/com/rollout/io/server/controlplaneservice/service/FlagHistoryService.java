@@ -0,0 +1,18 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.objects.RollbackResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+@Service
+public interface FlagHistoryService {
+
+    List<FlagRevision> getHistory(Jwt jwt, String environmentId, Long beforeRevision, int limit);
+
+    RollbackResult rollbackEnvironment(Jwt jwt, String environmentId, Long revision, Instant timestamp);
+
+}
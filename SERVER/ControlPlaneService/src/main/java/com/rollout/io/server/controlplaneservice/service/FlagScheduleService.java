@@ -0,0 +1,18 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface FlagScheduleService {
+
+    FlagSchedule createSchedule(Jwt jwt, String flagId, FlagSchedule schedule);
+
+    List<FlagSchedule> getSchedules(Jwt jwt, String flagId);
+
+    FlagSchedule cancelSchedule(Jwt jwt, String scheduleId);
+
+}
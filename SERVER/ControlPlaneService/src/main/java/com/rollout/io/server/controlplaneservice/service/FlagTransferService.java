@@ -0,0 +1,17 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.objects.FlagImportResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@Service
+public interface FlagTransferService {
+
+    StreamingResponseBody exportCoreFlags(Jwt jwt, String environmentId);
+
+    FlagImportResult importCoreFlags(Jwt jwt, String environmentId, InputStream body);
+
+}
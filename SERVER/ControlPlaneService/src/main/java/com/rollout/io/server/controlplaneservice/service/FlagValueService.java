@@ -0,0 +1,18 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.objects.JsonPatchOperation;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface FlagValueService {
+
+    Flag patchCoreFlagValue(Jwt jwt, String flagId, List<JsonPatchOperation> operations);
+
+    JsonNode getCoreFlagValue(Jwt jwt, String flagId, String pointer);
+
+}
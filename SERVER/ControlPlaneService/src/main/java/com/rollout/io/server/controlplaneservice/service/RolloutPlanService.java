@@ -0,0 +1,18 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface RolloutPlanService {
+
+    RolloutPlan createPlan(Jwt jwt, String flagId, RolloutPlan plan);
+
+    List<RolloutPlan> getPlans(Jwt jwt, String flagId);
+
+    RolloutPlan cancelPlan(Jwt jwt, String planId);
+
+}
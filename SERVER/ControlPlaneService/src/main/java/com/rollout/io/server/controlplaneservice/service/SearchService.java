@@ -0,0 +1,19 @@
+package com.rollout.io.server.controlplaneservice.service;
+
+import com.rollout.io.server.controlplaneservice.entity.Project;
+import com.rollout.io.server.controlplaneservice.entity.SearchResultType;
+import com.rollout.io.server.controlplaneservice.objects.SearchResults;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+
+@Service
+public interface SearchService {
+
+    SearchResults search(Jwt jwt, String query, Set<SearchResultType> types, int page, int size);
+
+    List<Project> searchProjects(Jwt jwt, String query);
+
+}
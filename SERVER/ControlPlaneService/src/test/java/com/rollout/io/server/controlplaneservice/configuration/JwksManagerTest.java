@@ -0,0 +1,149 @@
+package com.rollout.io.server.controlplaneservice.configuration;
+
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Against a local JWKS endpoint whose keys, status and latency each test controls
+class JwksManagerTest {
+
+    private HttpServer server;
+    private final List<Long> requests = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+    private volatile String cacheControl = "max-age=300";
+    private volatile JWKSet served;
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private JwksManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", this::serve);
+        server.start();
+        served = new JWKSet(key("a"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentLookupsOfAnUnknownKeyShareOneFetch() throws Exception {
+        manager = manager(Duration.ZERO);
+        gate = new CountDownLatch(1);
+
+        List<CompletableFuture<List<JWK>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lookups.add(manager.select(selector("a")));
+        }
+        gate.countDown();
+
+        for (CompletableFuture<List<JWK>> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).extracting(JWK::getKeyID).containsExactly("a");
+        }
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void unknownKeysTriggerARefetchThatFindsRotatedKeys() throws Exception {
+        manager = manager(Duration.ZERO);
+        manager.start(Duration.ofSeconds(5));
+        served = new JWKSet(List.of(key("a"), key("b")));
+
+        assertThat(manager.select(selector("b")).get(5, TimeUnit.SECONDS)).extracting(JWK::getKeyID).containsExactly("b");
+        assertThat(requests).hasSize(2);
+    }
+
+    @Test
+    void unknownKeysDoNotRefetchWithinTheMinimumInterval() throws Exception {
+        manager = manager(Duration.ofMinutes(1));
+        manager.start(Duration.ofSeconds(5));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(manager.select(selector("made-up-" + i)).get(1, TimeUnit.SECONDS)).isEmpty();
+        }
+        assertThat(requests).hasSize(1);
+        assertThat(manager.select(selector("a")).get()).extracting(JWK::getKeyID).containsExactly("a");
+    }
+
+    @Test
+    void failedRefreshesKeepTheKeysAndBackOff() throws Exception {
+        // The first refresh is due after 80% of a one second max-age, then the endpoint starts failing
+        cacheControl = "max-age=1";
+        manager = manager(Duration.ZERO);
+        manager.start(Duration.ofSeconds(5));
+        status = 500;
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (requests.size() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertThat(requests).hasSizeGreaterThanOrEqualTo(4);
+        long firstRetry = requests.get(2) - requests.get(1);
+        long secondRetry = requests.get(3) - requests.get(2);
+        assertThat(firstRetry).isBetween(900L, 1_900L);
+        assertThat(secondRetry).isBetween(1_900L, 3_900L);
+        assertThat(manager.get(selector("a"), null)).extracting(JWK::getKeyID).containsExactly("a");
+    }
+
+    private JwksManager manager(Duration minRefreshInterval) {
+        return new JwksManager("http://127.0.0.1:" + server.getAddress().getPort() + "/jwks", null,
+                Duration.ofSeconds(10), minRefreshInterval, Duration.ofSeconds(2), new SimpleMeterRegistry());
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.add(System.currentTimeMillis());
+        try {
+            gate.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = served.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static JWK key(String keyId) {
+        try {
+            return new ECKeyGenerator(Curve.P_256).keyID(keyId).generate().toPublicJWK();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JWKSelector selector(String keyId) {
+        return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.rollout.io.server.controlplaneservice.configuration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Writing an SDK body segment the way SdkPayloadMessageConverter does behind Spring Security's response wrapper,
+// which only forwards byte arrays, against copying the off-heap segment into one heap array first. The sink copies
+// into an 8 KB direct buffer like Tomcat's output buffer. Run as a plain main after test-compile; it is not part of
+// the test suite.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SdkBodyWriteBenchmark {
+
+    @Param({"4096", "1048576"})
+    public int bytes;
+
+    private ByteBuffer offHeap;
+    private ByteBuffer onHeap;
+    private OutputStream out;
+
+    @Setup
+    public void setUp() {
+        byte[] json = new byte[bytes];
+        for (int i = 0; i < bytes; i++) {
+            json[i] = (byte) ('a' + i % 26);
+        }
+        offHeap = ByteBuffer.allocateDirect(bytes).put(json).flip();
+        onHeap = ByteBuffer.wrap(json);
+        out = new SocketBufferStream();
+    }
+
+    @Benchmark
+    public Object offHeapSegment() throws IOException {
+        SdkPayloadMessageConverter.write(out, offHeap.duplicate());
+        return out;
+    }
+
+    @Benchmark
+    public Object heapSegment() throws IOException {
+        SdkPayloadMessageConverter.write(out, onHeap.duplicate());
+        return out;
+    }
+
+    // What the off-heap body avoids: materializing the whole segment as a heap array per response
+    @Benchmark
+    public Object offHeapCopiedToArray() throws IOException {
+        ByteBuffer segment = offHeap.duplicate();
+        byte[] copy = new byte[segment.remaining()];
+        segment.get(copy);
+        out.write(copy, 0, copy.length);
+        return copy;
+    }
+
+    private static final class SocketBufferStream extends OutputStream {
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SdkBodyWriteBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.exceptions.RolloutError;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonSchemaTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void typeAcceptsAnyListedTypeAndTreatsIntegralNumbersAsIntegers() {
+        String schema = "{\"type\": [\"integer\", \"null\"]}";
+
+        assertThat(errors(schema, "3")).isEmpty();
+        assertThat(errors(schema, "3.0")).isEmpty();
+        assertThat(errors(schema, "null")).isEmpty();
+        assertThat(errors(schema, "3.5")).containsExactly(": expected [null, integer]");
+        assertThat(errors(schema, "\"3\"")).containsExactly(": expected [null, integer]");
+    }
+
+    @Test
+    void enumAndConstCompareNumbersByValue() {
+        assertThat(errors("{\"enum\": [1, \"a\", {\"k\": 2}]}", "1.0")).isEmpty();
+        assertThat(errors("{\"enum\": [1, \"a\", {\"k\": 2}]}", "{\"k\": 2.0}")).isEmpty();
+        assertThat(errors("{\"enum\": [1, \"a\"]}", "\"b\"")).containsExactly(": must be one of [1,\"a\"]");
+        assertThat(errors("{\"const\": 10}", "1E1")).isEmpty();
+        assertThat(errors("{\"const\": 10}", "11")).containsExactly(": must be 10");
+        assertThat(errors("{\"enum\": [10, 20]}", "11")).containsExactly(": must be one of [10,20]");
+    }
+
+    @Test
+    void objectKeywordsCheckRequiredCountsAndAdditionalProperties() {
+        String schema = """
+                {"properties": {"a": {"type": "string"}}, "required": ["a", "b"],
+                 "additionalProperties": {"type": "integer"}, "minProperties": 2, "maxProperties": 3}""";
+
+        assertThat(errors(schema, "{\"a\": \"x\", \"b\": 1}")).isEmpty();
+        assertThat(errors(schema, "{\"a\": 1}")).containsExactly(
+                ": missing required property 'b'", ": must have at least 2 properties", "/a: expected [string]");
+        assertThat(errors(schema, "{\"a\": \"x\", \"b\": 1, \"c\": 2, \"d\": \"y\"}")).containsExactly(
+                ": must have at most 3 properties", "/d: expected [integer]");
+        assertThat(errors("{\"additionalProperties\": false}", "{\"x\": 1}")).containsExactly("/x: no value is allowed here");
+    }
+
+    @Test
+    void arrayKeywordsCheckItemsCountsAndUniqueness() {
+        String schema = "{\"items\": {\"type\": \"integer\"}, \"minItems\": 1, \"maxItems\": 3, \"uniqueItems\": true}";
+
+        assertThat(errors(schema, "[1, 2, 3]")).isEmpty();
+        assertThat(errors(schema, "[]")).containsExactly(": must have at least 1 items");
+        assertThat(errors(schema, "[1, 2, 3, 4]")).containsExactly(": must have at most 3 items");
+        assertThat(errors(schema, "[1, 1.0]")).containsExactly(": items must be unique");
+        assertThat(errors(schema, "[1, \"x\"]")).containsExactly("/1: expected [integer]");
+    }
+
+    @Test
+    void numericBoundsAreInclusiveOrExclusiveAsDeclared() {
+        String inclusive = "{\"minimum\": 1, \"maximum\": 5}";
+        assertThat(errors(inclusive, "1")).isEmpty();
+        assertThat(errors(inclusive, "5")).isEmpty();
+        assertThat(errors(inclusive, "0.5")).containsExactly(": must be >= 1");
+        assertThat(errors(inclusive, "6")).containsExactly(": must be <= 5");
+
+        String exclusive = "{\"exclusiveMinimum\": 1, \"exclusiveMaximum\": 5}";
+        assertThat(errors(exclusive, "1")).containsExactly(": must be > 1");
+        assertThat(errors(exclusive, "5")).containsExactly(": must be < 5");
+        assertThat(errors(exclusive, "4.99")).isEmpty();
+    }
+
+    @Test
+    void multipleOfIsExactForDecimals() {
+        assertThat(errors("{\"multipleOf\": 0.1}", "0.3")).isEmpty();
+        assertThat(errors("{\"multipleOf\": 0.1}", "0.35")).containsExactly(": must be a multiple of 0.1");
+        assertThat(errors("{\"multipleOf\": 3}", "9")).isEmpty();
+    }
+
+    @Test
+    void stringLengthCountsCodePointsAndPatternsAreUnanchored() {
+        String schema = "{\"minLength\": 2, \"maxLength\": 3, \"pattern\": \"[0-9]\"}";
+
+        assertThat(errors(schema, "\"a1\"")).isEmpty();
+        assertThat(errors(schema, "\"\uD83D\uDE001\"")).isEmpty(); // one code point, two chars, plus a digit
+        assertThat(errors(schema, "\"1\"")).containsExactly(": must be at least 2 characters");
+        assertThat(errors(schema, "\"a123\"")).containsExactly(": must be at most 3 characters");
+        assertThat(errors(schema, "\"abc\"")).containsExactly(": must match [0-9]");
+    }
+
+    @Test
+    void combinatorsApplyTheirSubschemas() {
+        assertThat(errors("{\"allOf\": [{\"minimum\": 1}, {\"maximum\": 2}]}", "3")).containsExactly(": must be <= 2");
+        assertThat(errors("{\"anyOf\": [{\"type\": \"string\"}, {\"minimum\": 10}]}", "11")).isEmpty();
+        assertThat(errors("{\"anyOf\": [{\"type\": \"string\"}, {\"minimum\": 10}]}", "9"))
+                .containsExactly(": must match at least one schema in anyOf");
+        assertThat(errors("{\"oneOf\": [{\"minimum\": 1}, {\"minimum\": 2}]}", "1")).isEmpty();
+        assertThat(errors("{\"oneOf\": [{\"minimum\": 1}, {\"minimum\": 2}]}", "2"))
+                .containsExactly(": must match exactly one schema in oneOf");
+        assertThat(errors("{\"not\": {\"type\": \"null\"}}", "null")).containsExactly(": must not match the schema in not");
+    }
+
+    @Test
+    void booleanSchemasAcceptOrRejectEverything() {
+        assertThat(errors("true", "{\"any\": [1]}")).isEmpty();
+        assertThat(errors("false", "1")).containsExactly(": no value is allowed here");
+    }
+
+    @Test
+    void errorsPointAtTheOffendingValueAndStopAtTheLimit() throws JsonProcessingException {
+        String schema = "{\"properties\": {\"a/b\": {\"items\": {\"type\": \"string\"}}}}";
+        JsonSchema compiled = JsonSchema.compile(objectMapper.readTree(schema), objectMapper);
+
+        Object value = objectMapper.readValue("{\"a/b\": [\"x\", 1, 2, 3]}", Object.class);
+        assertThat(compiled.validate(value, 2)).containsExactly("/a~1b/1: expected [string]", "/a~1b/2: expected [string]");
+    }
+
+    @Test
+    void annotationsAreIgnored() {
+        assertThat(errors("{\"title\": \"t\", \"description\": \"d\", \"default\": 1, \"$comment\": \"c\"}", "\"x\"")).isEmpty();
+    }
+
+    @Test
+    void malformedSchemasAreRejectedWithTheirLocation() {
+        assertInvalid("{\"properties\": {\"a\": {\"frobnicate\": 1}}}", "#/properties/a/frobnicate: keyword is not supported");
+        assertInvalid("{\"type\": \"decimal\"}", "#/type: unknown type 'decimal'");
+        assertInvalid("{\"minLength\": -1}", "#/minLength: must be a non-negative integer");
+        assertInvalid("{\"multipleOf\": 0}", "#/multipleOf: must be greater than 0");
+        assertInvalid("{\"pattern\": \"(\"}", "#/pattern: is not a valid regular expression");
+        assertInvalid("{\"anyOf\": []}", "#/anyOf: must be a non-empty array of schemas");
+        assertInvalid("{\"enum\": 1}", "#/enum: must be an array");
+        assertInvalid("1", "#: a schema must be an object or a boolean");
+    }
+
+    private List<String> errors(String schema, String value) {
+        try {
+            return JsonSchema.compile(objectMapper.readTree(schema), objectMapper)
+                    .validate(objectMapper.readValue(value, Object.class), 10);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private void assertInvalid(String schema, String message) {
+        assertThatThrownBy(() -> JsonSchema.compile(objectMapper.readTree(schema), objectMapper))
+                .isInstanceOf(RolloutError.class)
+                .hasMessage("Invalid JSON Schema at " + message);
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.rollout.io.server.controlplaneservice.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersistentHashMapTest {
+
+    // Hashes below 2^16 pass the map's spreading unchanged, so tests choose the trie path of each key
+    private record Key(String name, int hash) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && key.name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    void putsAndRemovesAgreeWithAHashMapAndLeaveEarlierVersionsIntact() {
+        PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            map = map.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        PersistentHashMap<Integer, String> full = map;
+
+        for (int i = 0; i < 5000; i += 2) {
+            map = map.remove(i);
+            expected.remove(i);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(toMap(map)).isEqualTo(expected);
+        assertThat(full.size()).isEqualTo(5000);
+        assertThat(full.get(0)).isEqualTo("v0");
+        assertThat(map.get(0)).isNull();
+    }
+
+    @Test
+    void removingEveryKeyEndsAtTheEmptyMap() {
+        PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.put(i * 31, "v");
+        }
+        for (int i = 0; i < 100; i++) {
+            map = map.remove(i * 31);
+        }
+
+        assertThat(map.size()).isZero();
+        assertThat(map).isSameAs(PersistentHashMap.empty());
+        assertThat(toMap(map)).isEmpty();
+    }
+
+    @Test
+    void keysWithTheSameHashShareACollisionNode() {
+        Key a = new Key("a", 7);
+        Key b = new Key("b", 7);
+        PersistentHashMap<Key, String> map = PersistentHashMap.<Key, String>empty().put(a, "1").put(b, "2");
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(a)).isEqualTo("1");
+        assertThat(map.get(b)).isEqualTo("2");
+        assertThat(map.get(new Key("c", 7))).isNull();
+
+        PersistentHashMap<Key, String> replaced = map.put(b, "3");
+        assertThat(replaced.size()).isEqualTo(2);
+        assertThat(replaced.get(b)).isEqualTo("3");
+        assertThat(map.get(b)).isEqualTo("2");
+
+        PersistentHashMap<Key, String> withoutA = map.remove(a);
+        assertThat(withoutA.size()).isEqualTo(1);
+        assertThat(withoutA.get(a)).isNull();
+        assertThat(withoutA.get(b)).isEqualTo("2");
+        assertThat(withoutA.remove(b)).isSameAs(PersistentHashMap.empty());
+    }
+
+    @Test
+    void aDifferingHashNestsTheCollisionNodeOneLevelDown() {
+        Key a = new Key("a", 7);
+        Key b = new Key("b", 7);
+        Key c = new Key("c", 7 + 32); // same first five bits, so it lands on the collision node's slot
+        PersistentHashMap<Key, String> map = PersistentHashMap.<Key, String>empty().put(a, "1").put(b, "2").put(c, "3");
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(toMap(map)).isEqualTo(Map.of(a, "1", b, "2", c, "3"));
+
+        PersistentHashMap<Key, String> withoutC = map.remove(c);
+        assertThat(withoutC.size()).isEqualTo(2);
+        assertThat(toMap(withoutC)).isEqualTo(Map.of(a, "1", b, "2"));
+        assertThat(withoutC.remove(a).remove(b)).isSameAs(PersistentHashMap.empty());
+    }
+
+    @Test
+    void sizeCountsOnlyNewKeys() {
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().put("Aa", "1").put("BB", "2");
+
+        assertThat(map.put("Aa", "changed").size()).isEqualTo(2);
+        assertThat(map.put("BB", "changed").size()).isEqualTo(2); // "Aa" and "BB" collide
+        assertThat(map.put("Ab", "3").size()).isEqualTo(3);
+        assertThat(map.remove("missing")).isSameAs(map);
+        assertThat(map.remove(new Key("Aa", "Aa".hashCode()))).isSameAs(map); // same hash, not an equal key
+    }
+
+    @Test
+    void puttingTheMappedInstanceAgainReturnsTheSameMap() {
+        String value = "value";
+        Key a = new Key("a", 7);
+        Key b = new Key("b", 7);
+        PersistentHashMap<Object, String> map = PersistentHashMap.<Object, String>empty().put("plain", value).put(a, value).put(b, value);
+
+        assertThat(map.put("plain", value)).isSameAs(map);
+        assertThat(map.put(b, value)).isSameAs(map); // inside the collision node
+
+        PersistentHashMap<Object, String> equalCopy = map.put("plain", new String(value));
+        assertThat(equalCopy).isNotSameAs(map);
+        assertThat(equalCopy.size()).isEqualTo(map.size());
+    }
+
+    @Test
+    void nullKeysAndValuesAreRejected() {
+        PersistentHashMap<String, String> map = PersistentHashMap.empty();
+
+        assertThatThrownBy(() -> map.put(null, "v")).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> map.put("k", null)).isInstanceOf(NullPointerException.class);
+    }
+
+    private static <K, V> Map<K, V> toMap(PersistentHashMap<K, V> map) {
+        Map<K, V> entries = new HashMap<>();
+        map.forEach((key, value) -> assertThat(entries.put(key, value)).isNull());
+        return entries;
+    }
+
+}
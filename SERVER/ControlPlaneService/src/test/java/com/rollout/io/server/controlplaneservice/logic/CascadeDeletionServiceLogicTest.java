@@ -0,0 +1,107 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.rollout.io.server.controlplaneservice.entity.DeletionJob;
+import com.rollout.io.server.controlplaneservice.entity.DeletionJobStatus;
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpoint;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.entity.FlagSchedule;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlanStatus;
+import com.rollout.io.server.controlplaneservice.entity.ScheduleStatus;
+import com.rollout.io.server.controlplaneservice.repository.DeletionJobRepository;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CascadeDeletionServiceLogicTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private CascadeDeletionServiceLogic cascade;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "rollout");
+        DeletionJobRepository repository = new MongoRepositoryFactory(mongoTemplate).getRepository(DeletionJobRepository.class);
+        cascade = new CascadeDeletionServiceLogic(mongoTemplate, repository, new SimpleMeterRegistry(), 1, 2, 100, 0, 60, 3600);
+        // Jobs are driven by hand below
+        cascade.stop();
+
+        mongoTemplate.insert(Environment.builder().id("env-1").build());
+        for (int i = 0; i < 3; i++) {
+            mongoTemplate.insert(Flag.builder().id("flag-" + i).environmentId("env-1").key("key-" + i).build());
+            mongoTemplate.insert(FlagRevision.builder().environmentId("env-1").flagId("flag-" + i).revision(i + 1).build());
+        }
+        mongoTemplate.insert(RolloutPlan.builder().flagId("flag-0").environmentId("env-1").status(RolloutPlanStatus.ACTIVE).build());
+        mongoTemplate.insert(FlagSchedule.builder().flagId("flag-1").environmentId("env-1").status(ScheduleStatus.PENDING).build());
+        FlagCheckpoint checkpoint = mongoTemplate.insert(FlagCheckpoint.builder().environmentId("env-1").revision(3).complete(true).build());
+        for (int i = 0; i < 3; i++) {
+            mongoTemplate.insert(FlagCheckpointEntry.builder().checkpointId(checkpoint.getId()).build());
+        }
+        // Another environment's children stay
+        mongoTemplate.insert(Flag.builder().id("other").environmentId("env-2").key("key").build());
+        mongoTemplate.insert(FlagRevision.builder().environmentId("env-2").flagId("other").revision(1).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void aJobWaitsForItsTargetAndThenRemovesEveryChild() throws InterruptedException {
+        DeletionJob job = cascade.scheduleEnvironmentDeletion("env-1");
+
+        cascade.processJobs();
+        assertThat(mongoTemplate.findById(job.getId(), DeletionJob.class).getStatus()).isEqualTo(DeletionJobStatus.PENDING);
+        assertThat(mongoTemplate.count(new Query(), Flag.class)).isEqualTo(4);
+
+        mongoTemplate.remove(new Query(Criteria.where("_id").is("env-1")), Environment.class);
+        Thread.sleep(20); // past the short wait the job was put back with
+        for (int i = 0; i < 50 && mongoTemplate.findById(job.getId(), DeletionJob.class).getStatus() != DeletionJobStatus.COMPLETED; i++) {
+            cascade.processJobs();
+        }
+
+        assertThat(mongoTemplate.findById(job.getId(), DeletionJob.class).getStatus()).isEqualTo(DeletionJobStatus.COMPLETED);
+        assertThat(mongoTemplate.findAll(Flag.class)).extracting(Flag::getId).containsExactly("other");
+        assertThat(mongoTemplate.findAll(FlagRevision.class)).extracting(FlagRevision::getEnvironmentId).containsExactly("env-2");
+        for (Class<?> type : List.of(RolloutPlan.class, FlagSchedule.class, FlagCheckpoint.class, FlagCheckpointEntry.class)) {
+            assertThat(mongoTemplate.count(new Query(), type)).as(type.getSimpleName()).isZero();
+        }
+    }
+
+    @Test
+    void aJobWhoseTargetWasNeverDeletedIsCancelled() {
+        DeletionJob job = cascade.scheduleEnvironmentDeletion("env-1");
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId())),
+                new Update().set("createdAt", Instant.now().minusSeconds(7200)), DeletionJob.class);
+
+        cascade.processJobs();
+
+        assertThat(mongoTemplate.findById(job.getId(), DeletionJob.class).getStatus()).isEqualTo(DeletionJobStatus.CANCELLED);
+        assertThat(mongoTemplate.count(new Query(), Flag.class)).isEqualTo(4);
+    }
+
+}
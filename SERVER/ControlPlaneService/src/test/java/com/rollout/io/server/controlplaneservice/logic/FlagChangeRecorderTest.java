@@ -0,0 +1,140 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpoint;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+class FlagChangeRecorderTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "rollout");
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void revisionsAdvanceEvenWhenTheEnvironmentIsAheadOfTheLocalClock() {
+        // Another replica with a clock far ahead already raised the revision past this node's epoch micros
+        long ahead = System.currentTimeMillis() * 1000 + 3_600_000_000L;
+        mongoTemplate.insert(Environment.builder().id("env-1").revision(ahead).build());
+
+        FlagChangeRecorder first = recorder();
+        FlagChangeRecorder second = recorder();
+        Flag flag = Flag.builder().id("flag-1").environmentId("env-1").key("checkout").build();
+
+        first.record(FlagChangeType.UPDATE, flag, "uid");
+        second.record(FlagChangeType.UPDATE, flag, "uid");
+        first.record(FlagChangeType.TOGGLE, flag, "uid");
+        first.flush();
+        second.flush();
+
+        List<Long> revisions = mongoTemplate.find(new Query().with(Sort.by("revision")), FlagRevision.class).stream()
+                .map(FlagRevision::getRevision)
+                .toList();
+        assertThat(revisions).containsExactly(ahead + 1, ahead + 2, ahead + 3);
+        assertThat(mongoTemplate.findById("env-1", Environment.class).getRevision()).isEqualTo(ahead + 3);
+    }
+
+    @Test
+    void checkpointsInvalidateSnapshots() {
+        mongoTemplate.insert(Environment.builder().id("env-1").build());
+
+        recorder().checkpoint("env-1");
+
+        assertThat(mongoTemplate.findById("env-1", Environment.class).getRevision()).isEqualTo(1L);
+    }
+
+    @Test
+    void checkpointsAreWrittenBeforeReturning() {
+        mongoTemplate.insert(Environment.builder().id("env-1").build());
+        mongoTemplate.insert(Flag.builder().id("flag-1").environmentId("env-1").key("checkout").build());
+
+        recorder().checkpoint("env-1");
+
+        FlagCheckpoint checkpoint = mongoTemplate.findOne(new Query(), FlagCheckpoint.class);
+        assertThat(checkpoint.isComplete()).isTrue();
+        assertThat(checkpoint.getRevision()).isEqualTo(1L);
+        assertThat(mongoTemplate.count(new Query(), FlagCheckpointEntry.class)).isEqualTo(1);
+    }
+
+    @Test
+    void failedCheckpointsAreRetriedByTheNextFlush() {
+        mongoTemplate.insert(Environment.builder().id("env-1").build());
+        MongoTemplate failing = spy(mongoTemplate);
+        doThrow(new DataAccessResourceFailureException("down")).doCallRealMethod()
+                .when(failing).insert(any(FlagCheckpoint.class));
+        FlagChangeRecorder recorder = new FlagChangeRecorder(failing, new SimpleMeterRegistry(), 100, 100, 500);
+
+        recorder.checkpoint("env-1");
+        assertThat(mongoTemplate.count(new Query(), FlagCheckpoint.class)).isZero();
+
+        recorder.flush();
+        assertThat(mongoTemplate.findOne(new Query(), FlagCheckpoint.class).isComplete()).isTrue();
+    }
+
+    @Test
+    void failedHistoryBatchesAreRetriedWithoutDuplicates() {
+        mongoTemplate.insert(Environment.builder().id("env-1").build());
+        MongoTemplate failing = spy(mongoTemplate);
+        // The first attempt writes part of the batch before it fails
+        doAnswer(invocation -> {
+            List<FlagRevision> batch = invocation.getArgument(0);
+            mongoTemplate.insert(batch.get(0));
+            throw new DataAccessResourceFailureException("down");
+        }).doCallRealMethod().when(failing).insert(anyList(), eq(FlagRevision.class));
+        FlagChangeRecorder recorder = new FlagChangeRecorder(failing, new SimpleMeterRegistry(), 100, 100, 500);
+        Flag flag = Flag.builder().id("flag-1").environmentId("env-1").key("checkout").build();
+
+        recorder.record(FlagChangeType.UPDATE, flag, "uid");
+        recorder.record(FlagChangeType.TOGGLE, flag, "uid");
+        recorder.flush();
+        assertThat(mongoTemplate.count(new Query(), FlagRevision.class)).isEqualTo(1);
+
+        recorder.flush();
+        List<Long> revisions = mongoTemplate.find(new Query().with(Sort.by("revision")), FlagRevision.class).stream()
+                .map(FlagRevision::getRevision)
+                .toList();
+        assertThat(revisions).containsExactly(1L, 2L);
+    }
+
+    private FlagChangeRecorder recorder() {
+        return new FlagChangeRecorder(mongoTemplate, new SimpleMeterRegistry(), 100, 100, 500);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCheckpointEntry;
+import com.rollout.io.server.controlplaneservice.entity.FlagValueBlob;
+import com.rollout.io.server.controlplaneservice.entity.PromotionMode;
+import com.rollout.io.server.controlplaneservice.objects.PromotionResult;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class FlagValueBlobStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private FlagValueBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "rollout");
+        blobStore = new FlagValueBlobStore(mongoTemplate, new ObjectMapper(), null, meterRegistry, 64, 16, 24);
+        mongoTemplate.setEntityCallbacks(EntityCallbacks.create(blobStore));
+
+        mongoTemplate.insert(Flag.builder().id("flag-1").environmentId("env-1").key("checkout")
+                .value(Map.of("payload", "x".repeat(256)))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void readsLoadTheBlobOnlyWhenTheValueIsUsed() {
+        Flag flag = mongoTemplate.findById("flag-1", Flag.class);
+        assertThat(loads()).isZero();
+
+        assertThat(flag.getValue()).isEqualTo(Map.of("payload", "x".repeat(256)));
+        assertThat(loads()).isEqualTo(1);
+    }
+
+    @Test
+    void checkpointEntriesKeepTheReferenceWithoutStoringTheBlobAgain() {
+        Flag flag = mongoTemplate.findById("flag-1", Flag.class);
+        double stores = meterRegistry.counter("rollout.flags.blobs", "op", "store").count();
+
+        mongoTemplate.insert(FlagCheckpointEntry.builder().checkpointId("checkpoint-1").flag(flag).build());
+
+        Document entry = mongoTemplate.findOne(new Query(), Document.class, "flag_checkpoint_entries");
+        assertThat(entry.get("flag", Document.class).getString("valueRef")).isEqualTo(flag.getValueRef());
+        assertThat(meterRegistry.counter("rollout.flags.blobs", "op", "store").count()).isEqualTo(stores);
+        assertThat(loads()).isZero();
+    }
+
+    @Test
+    void promotionPointsTheCopyAtTheSameBlobWithoutLoadingIt() {
+        EnvironmentPromotionServiceLogic promotion = new EnvironmentPromotionServiceLogic(mongoTemplate, mock(EnvironmentService.class),
+                new FlagChangeRecorder(mongoTemplate, meterRegistry, 100, 100, 500), blobStore, 100);
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").subject("uid").build();
+        String reference = mongoTemplate.findById("flag-1", Flag.class).getValueRef();
+
+        PromotionResult first = promotion.promoteEnvironment(jwt, "env-1", "env-2", PromotionMode.OVERWRITE);
+        PromotionResult second = promotion.promoteEnvironment(jwt, "env-1", "env-2", PromotionMode.MERGE);
+
+        Flag copy = mongoTemplate.findOne(new Query(Criteria.where("environmentId").is("env-2")), Flag.class);
+        assertThat(copy.getValueRef()).isEqualTo(reference);
+        assertThat(loads()).isZero();
+        assertThat(first.getCreated()).isEqualTo(1);
+        assertThat(second.getUpdated()).isZero();
+        assertThat(second.getSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    void aMissingBlobFailsTheRead() {
+        mongoTemplate.remove(new Query(), FlagValueBlob.class);
+
+        Flag flag = mongoTemplate.findById("flag-1", Flag.class);
+
+        assertThatThrownBy(flag::getValue).isInstanceOf(IllegalStateException.class).hasMessageContaining("is missing");
+    }
+
+    private double loads() {
+        return meterRegistry.counter("rollout.flags.blobs", "op", "load").count();
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.rollout.io.server.controlplaneservice.entity.Environment;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.FlagCategory;
+import com.rollout.io.server.controlplaneservice.entity.FlagChangeType;
+import com.rollout.io.server.controlplaneservice.entity.FlagRevision;
+import com.rollout.io.server.controlplaneservice.entity.FlagType;
+import com.rollout.io.server.controlplaneservice.entity.JsonPatchOp;
+import com.rollout.io.server.controlplaneservice.objects.JsonPatchOperation;
+import com.rollout.io.server.controlplaneservice.service.EnvironmentService;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FlagValueServiceLogicTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").subject("uid").build();
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private FlagChangeRecorder recorder;
+    private FlagValueBlobStore blobStore;
+    private FlagValueServiceLogic flagValueService;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "rollout");
+
+        recorder = new FlagChangeRecorder(mongoTemplate, meterRegistry, 100, 100, 500);
+        blobStore = new FlagValueBlobStore(mongoTemplate, objectMapper, null, meterRegistry, 16384, 16, 24);
+        flagValueService = new FlagValueServiceLogic(mongoTemplate, objectMapper, mock(EnvironmentService.class), recorder,
+                new JsonSchemaCache(objectMapper, meterRegistry, 10), blobStore, meterRegistry);
+
+        mongoTemplate.insert(Environment.builder().id("env-1").build());
+        mongoTemplate.insert(Flag.builder()
+                .id("flag-1")
+                .environmentId("env-1")
+                .key("checkout")
+                .type(FlagType.JSON)
+                .category(FlagCategory.CORE)
+                .version(1)
+                .value(Map.of("items", List.of("a", "b", "c"), "limits", Map.of("max", 5)))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void addAtAnArrayIndexInsertsTheElement() {
+        flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.ADD, "/items/0", "z")));
+
+        assertThat(storedValue()).extracting("items").isEqualTo(List.of("z", "a", "b", "c"));
+        assertThat(rewrites()).isEqualTo(1);
+    }
+
+    @Test
+    void removeAtAnArrayIndexClosesTheGap() {
+        flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.REMOVE, "/items/1", null)));
+
+        assertThat(storedValue()).extracting("items").isEqualTo(List.of("a", "c"));
+        assertThat(rewrites()).isEqualTo(1);
+    }
+
+    @Test
+    void namedMembersArePatchedInPlace() {
+        Flag patched = flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.ADD, "/limits/min", 1)));
+
+        assertThat(storedValue()).extracting("limits").isEqualTo(Map.of("max", 5, "min", 1));
+        assertThat(meterRegistry.counter("rollout.flags.patches", "mode", "in-place").count()).isEqualTo(1);
+        assertThat(patched.getValue()).isNull();
+        assertThat(patched.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void historyKeepsTheOperationsRatherThanTheValue() {
+        flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.REPLACE, "/limits/max", 9)));
+        recorder.flush();
+
+        FlagRevision revision = mongoTemplate.findOne(new Query(), FlagRevision.class);
+        assertThat(revision.getChangeType()).isEqualTo(FlagChangeType.PATCH);
+        assertThat(revision.getFlag().getValue()).isNull();
+        assertThat(revision.getFlag().getVersion()).isEqualTo(2);
+        assertThat(revision.getPatch()).containsExactly(Map.of("op", "replace", "path", "/limits/max", "value", 9));
+    }
+
+    @Test
+    void rollbackReplaysPatchesOntoTheCheckpoint() {
+        flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.ADD, "/items/-", "d")));
+        recorder.flush(); // baseline checkpoint at revision 1
+        flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.REPLACE, "/limits/max", 9)));
+        flagValueService.patchCoreFlagValue(jwt, "flag-1", List.of(operation(JsonPatchOp.REMOVE, "/limits", null)));
+        recorder.flush();
+
+        FlagHistoryServiceLogic history = new FlagHistoryServiceLogic(mongoTemplate, mock(EnvironmentService.class), recorder, blobStore, objectMapper);
+        history.rollbackEnvironment(jwt, "env-1", 2L, null);
+
+        assertThat(storedValue()).isEqualTo(Map.of("items", List.of("a", "b", "c", "d"), "limits", Map.of("max", 9)));
+    }
+
+    private Object storedValue() {
+        return mongoTemplate.findById("flag-1", Flag.class).getValue();
+    }
+
+    private double rewrites() {
+        return meterRegistry.counter("rollout.flags.patches", "mode", "rewrite").count();
+    }
+
+    private JsonPatchOperation operation(JsonPatchOp op, String path, Object value) {
+        return new JsonPatchOperation(op, path, null, value == null ? null : objectMapper.valueToTree(value));
+    }
+
+}
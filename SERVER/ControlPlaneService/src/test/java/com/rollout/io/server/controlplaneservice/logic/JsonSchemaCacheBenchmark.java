@@ -0,0 +1,135 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rollout.io.server.controlplaneservice.helpers.JsonSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Validation of JSON flag values, up to ~1 MB, through JsonSchemaCache versus compiling the schema on every write.
+// Run as a plain main after test-compile; it is not part of the test suite.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSchemaCacheBenchmark {
+
+    // 5400 rules is about 1 MB of JSON; 10 rules shows a typical small value, where compiling is most of the cost
+    @Param({"10", "5400"})
+    public int ruleCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JsonSchemaCache cache;
+    private Map<String, Object> schema;
+    private String schemaHash;
+    private JsonNode schemaTree;
+    private Object value;
+
+    @Setup
+    public void setUp() throws Exception {
+        cache = new JsonSchemaCache(objectMapper, new SimpleMeterRegistry(), 1000);
+        schema = objectMapper.readValue("""
+                {
+                  "type": "object",
+                  "required": ["version", "rules"],
+                  "properties": {
+                    "version": {"type": "integer", "minimum": 1},
+                    "rules": {
+                      "type": "array",
+                      "maxItems": 100000,
+                      "items": {
+                        "type": "object",
+                        "required": ["id", "weight", "segments", "variant"],
+                        "additionalProperties": false,
+                        "properties": {
+                          "id": {"type": "string", "pattern": "^rule-[0-9]{6}$"},
+                          "weight": {"type": "integer", "minimum": 0, "maximum": 100},
+                          "variant": {"enum": ["control", "treatment-a", "treatment-b"]},
+                          "segments": {
+                            "type": "array",
+                            "uniqueItems": true,
+                            "items": {"type": "string", "minLength": 2, "maxLength": 64, "pattern": "^[a-z][a-z0-9-]*$"}
+                          },
+                          "attributes": {
+                            "type": "object",
+                            "additionalProperties": {"type": ["string", "number", "boolean"]}
+                          }
+                        }
+                      }
+                    }
+                  }
+                }
+                """, Map.class);
+        schemaTree = objectMapper.valueToTree(schema);
+        schemaHash = cache.hash(schema);
+
+        List<Object> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            Map<String, Object> rule = new LinkedHashMap<>();
+            rule.put("id", String.format("rule-%06d", i));
+            rule.put("weight", i % 101);
+            rule.put("variant", i % 3 == 0 ? "control" : i % 3 == 1 ? "treatment-a" : "treatment-b");
+            rule.put("segments", List.of("region-eu-" + i % 7, "plan-tier-" + i % 5, "cohort-" + i));
+            rule.put("attributes", Map.of("country", "DE", "beta", i % 2 == 0, "score", i * 0.5, "channel", "mobile-app"));
+            rules.add(rule);
+        }
+        value = Map.of("version", 3, "rules", rules);
+
+        int bytes = objectMapper.writeValueAsBytes(value).length;
+        System.out.printf("%nDocument size: %d bytes%n", bytes);
+    }
+
+    @Benchmark
+    public Object cached() {
+        cache.validate(schema, schemaHash, value);
+        return value;
+    }
+
+    @Benchmark
+    public Object uncached() {
+        return JsonSchema.compile(schemaTree, objectMapper).validate(value, 5);
+    }
+
+    // What the cache trades: a lookup by the hash stored on the flag against compiling the schema again
+    @Benchmark
+    public Object lookupOnly() {
+        return cache.get(schema, schemaHash);
+    }
+
+    // The one-off cost of a schema being set, or of a flag that predates stored hashes
+    @Benchmark
+    public Object hashOnly() {
+        return cache.hash(schema);
+    }
+
+    @Benchmark
+    public Object compileOnly() {
+        return JsonSchema.compile(schemaTree, objectMapper);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonSchemaCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.rollout.io.server.controlplaneservice.logic;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.rollout.io.server.controlplaneservice.entity.Flag;
+import com.rollout.io.server.controlplaneservice.entity.RolloutGuard;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlan;
+import com.rollout.io.server.controlplaneservice.entity.RolloutPlanStatus;
+import com.rollout.io.server.controlplaneservice.entity.RolloutStage;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RolloutPlanRunnerTest {
+
+    private static final int PLANS = 64;
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private RolloutPlanRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = new MongoTemplate(client, "rollout");
+        for (int i = 0; i < PLANS; i++) {
+            mongoTemplate.insert(Flag.builder().id("flag-" + i).environmentId("env-1").key("key-" + i).version(1).build());
+            mongoTemplate.insert(RolloutPlan.builder()
+                    .id("plan-" + i)
+                    .flagId("flag-" + i)
+                    .environmentId("env-1")
+                    .stages(List.of(RolloutStage.builder().percentage(10).holdSeconds(60L).build(),
+                            RolloutStage.builder().percentage(100).holdSeconds(0L).build()))
+                    .guards(List.of(RolloutGuard.builder().name("errors").query("errors{flag=\"key-" + i + "\"}").maxValue(1.0).build()))
+                    .currentStage(-1)
+                    .rollbackPercentage(0)
+                    .status(RolloutPlanStatus.ACTIVE)
+                    .nextStepAt(Instant.now().minusSeconds(1))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (runner != null) {
+            runner.stop();
+        }
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void guardsOfManyPlansAreQueriedConcurrently() {
+        runner = runner(new LeaseManager(mongoTemplate));
+
+        long started = System.nanoTime();
+        runner.tick();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        // 64 queries of 100 ms each would take 6.4 s one after another
+        assertThat(elapsedMs).isLessThan(3_000);
+        assertThat(stepped()).isEqualTo(PLANS);
+    }
+
+    @Test
+    void aPassStopsOnceTheLeaseIsLost() {
+        AtomicInteger acquisitions = new AtomicInteger();
+        runner = runner(new LeaseManager(mongoTemplate) {
+            @Override
+            public boolean tryAcquire(String name, Duration duration) {
+                return acquisitions.incrementAndGet() == 1;
+            }
+        });
+
+        runner.tick();
+
+        assertThat(stepped()).isZero();
+    }
+
+    private long stepped() {
+        return mongoTemplate.count(new Query(Criteria.where("currentStage").is(0)), RolloutPlan.class);
+    }
+
+    private RolloutPlanRunner runner(LeaseManager leaseManager) {
+        MetricGuardEvaluator evaluator = new MetricGuardEvaluator("http://localhost:1", 100) {
+            @Override
+            public OptionalDouble evaluate(String query) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return OptionalDouble.of(0);
+            }
+        };
+        FlagChangeRecorder recorder = new FlagChangeRecorder(mongoTemplate, new SimpleMeterRegistry(), 100, 100, 500);
+        return new RolloutPlanRunner(mongoTemplate, evaluator, recorder, leaseManager, new SimpleMeterRegistry(), 5_000, 16);
+    }
+
+}